@@ -0,0 +1,80 @@
+/*
+ * Copyright 2025-present Nils Christian Haugen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tabletest.formatter.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.tabletest.formatter.core.DisplayWidth;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link DisplayWidth#of(String)} on typical cell contents.
+ *
+ * <p>{@code codePointStream} is the per-code-point stream pipeline {@code DisplayWidth.of}
+ * used before the ASCII fast path, kept as the baseline the current implementation is
+ * compared against.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DisplayWidthBenchmark {
+
+    @Param({"ascii", "cjk", "emoji"})
+    private String script;
+
+    private String[] cells;
+
+    @Setup
+    public void setUp() {
+        cells = switch (script) {
+            case "ascii" -> new String[] {"Alice", "30", "London", "[1, 2, 3]", "'quoted value'", "true"};
+            case "cjk" -> new String[] {"你好", "世界", "こんにちは", "안녕하세요", "中文 text", "日本語"};
+            case "emoji" -> new String[] {"😀", "Hello 👋 World", "☕ tastes good", "🚀🚀🚀", "ok ✅", "👍"};
+            default -> throw new IllegalArgumentException("Unknown script: " + script);
+        };
+    }
+
+    @Benchmark
+    public int displayWidth() {
+        int total = 0;
+        for (String cell : cells) {
+            total += DisplayWidth.of(cell);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public int codePointStream() {
+        int total = 0;
+        for (String cell : cells) {
+            total += cell.codePoints().map(DisplayWidth::ofCodePoint).sum();
+        }
+        return total;
+    }
+}
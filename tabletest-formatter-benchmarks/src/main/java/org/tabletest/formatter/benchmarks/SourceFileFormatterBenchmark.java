@@ -0,0 +1,76 @@
+/*
+ * Copyright 2025-present Nils Christian Haugen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tabletest.formatter.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.tabletest.formatter.config.Config;
+import org.tabletest.formatter.core.SourceFileFormatter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link SourceFileFormatter#format} on a test class with many unformatted tables,
+ * where the cost of splicing formatted tables back into the file dominates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SourceFileFormatterBenchmark {
+
+    @Param({"10", "200"})
+    private int tableCount;
+
+    private final SourceFileFormatter formatter = new SourceFileFormatter();
+
+    private String source;
+
+    @Setup
+    public void setUp() {
+        StringBuilder builder = new StringBuilder("class ParameterizedTest {\n");
+        for (int i = 0; i < tableCount; i++) {
+            builder.append("""
+
+                        @TableTest(\"""
+                        Scenario|Input|Expected
+                        Basic case|[1,2,3]|6
+                        Edge case at zero|[]|0
+                        \""")
+                        void test%d(List<Integer> input, int expected) {
+                            assertEquals(expected, sum(input));
+                        }
+                    """.formatted(i));
+        }
+        source = builder.append("}\n").toString();
+    }
+
+    @Benchmark
+    public String format() {
+        return formatter.format(source, Config.SPACES_4);
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2025-present Nils Christian Haugen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tabletest.formatter.cli;
+
+import org.tabletest.formatter.core.LineRange;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lists the files touched by a change, so that only those need formatting.
+ *
+ * <p>Git is asked for added, copied, modified and renamed files; deleted files are left
+ * out. Paths are returned relative to the working directory, as if given on the command line.
+ * For ratcheting, git can also tell which lines of those files changed.
+ */
+final class ChangedFiles {
+
+    private final Path workingDirectory;
+
+    ChangedFiles(Path workingDirectory) {
+        this.workingDirectory = workingDirectory.toAbsolutePath();
+    }
+
+    /**
+     * Files that differ between the working tree and the point where the current branch
+     * forked from {@code ref}, so that changes made on {@code ref} since then are left out.
+     *
+     * @param ref any commit-ish, e.g. {@code origin/main}
+     * @return committed, staged and unstaged changes since the fork point
+     * @throws IOException if git cannot be run or reports an error
+     */
+    List<Path> since(String ref) throws IOException {
+        String base = git("merge-base", ref, "HEAD").trim();
+        return changedFiles(git("diff", "--name-only", "-z", "--diff-filter=ACMR", base, "--"));
+    }
+
+    /**
+     * The lines changed in each file since the current branch forked from {@code ref}, as
+     * numbered in the working tree, for formatting only the tables a change touched.
+     * Where lines were only deleted, the lines either side of the gap count as changed.
+     *
+     * @param ref any commit-ish, e.g. {@code origin/main}
+     * @return changed line ranges by file, in diff order; new files have one range covering them
+     * @throws IOException if git cannot be run or reports an error
+     */
+    Map<Path, List<LineRange>> changedLines(String ref) throws IOException {
+        String base = git("merge-base", ref, "HEAD").trim();
+        Path topLevel = Path.of(git("rev-parse", "--show-toplevel").trim());
+        String diff = git(
+                "-c",
+                "core.quotePath=false",
+                "diff",
+                "--unified=0",
+                "--no-color",
+                "--no-ext-diff",
+                "--src-prefix=a/",
+                "--dst-prefix=b/",
+                "--diff-filter=ACMR",
+                base,
+                "--");
+        return parseHunks(diff, topLevel);
+    }
+
+    private Map<Path, List<LineRange>> parseHunks(String diff, Path topLevel) {
+        Map<Path, List<LineRange>> changedLines = new LinkedHashMap<>();
+        List<LineRange> ranges = null;
+        String[] lines = diff.split("\n", -1);
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i];
+            if (line.startsWith("+++ b/")) {
+                Path file = topLevel.resolve(line.substring("+++ b/".length()));
+                // Submodules show up as changed paths too; their contents belong to another repository
+                ranges = Files.isDirectory(file) ? null : new ArrayList<>();
+                if (ranges != null) {
+                    changedLines.put(relativize(file), ranges);
+                }
+            } else if (line.startsWith("@@ ") && ranges != null) {
+                // @@ -oldStart[,oldCount] +newStart[,newCount] @@
+                String[] header = line.split(" ", 4);
+                int[] old = parseHunkRange(header[1]);
+                int[] added = parseHunkRange(header[2]);
+                int start = added[0];
+                int count = added[1];
+                ranges.add(
+                        count == 0
+                                ? new LineRange(Math.max(start, 1), start + 1)
+                                : new LineRange(start, start + count - 1));
+                // Skip the hunk body, whose lines could look like headers; "\ No newline" markers are extra
+                int remaining = old[1] + count;
+                while (remaining > 0 && i + 1 < lines.length) {
+                    if (!lines[++i].startsWith("\\")) {
+                        remaining--;
+                    }
+                }
+            }
+        }
+        return changedLines;
+    }
+
+    /**
+     * Parses {@code -start,count} or {@code +start,count}, where a missing count means 1.
+     */
+    private static int[] parseHunkRange(String range) {
+        int comma = range.indexOf(',');
+        if (comma < 0) {
+            return new int[] {Integer.parseInt(range.substring(1)), 1};
+        }
+        return new int[] {Integer.parseInt(range.substring(1, comma)), Integer.parseInt(range.substring(comma + 1))};
+    }
+
+    /**
+     * Files with changes in the index, as a pre-commit hook sees them. Only the selection
+     * comes from the index: the files are then read from the working tree, which for a
+     * partially staged file is not the content being committed.
+     *
+     * @return staged changes
+     * @throws IOException if git cannot be run or reports an error
+     */
+    List<Path> staged() throws IOException {
+        return changedFiles(git("diff", "--cached", "--name-only", "-z", "--diff-filter=ACMR", "--"));
+    }
+
+    /**
+     * Reads a list of paths, NUL-separated if there is any NUL (as from {@code git diff -z} or
+     * {@code find -print0}), newline-separated otherwise. Blank entries are skipped.
+     *
+     * @param input the list
+     * @return the paths, resolved against the working directory if relative
+     * @throws IOException if the input cannot be read
+     */
+    List<Path> readList(InputStream input) throws IOException {
+        String content = new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        String separator = content.indexOf('\0') >= 0 ? "\0" : "\n";
+        List<Path> files = new ArrayList<>();
+        for (String entry : content.split(separator)) {
+            String name =
+                    separator.equals("\n") && entry.endsWith("\r") ? entry.substring(0, entry.length() - 1) : entry;
+            if (!name.isBlank()) {
+                files.add(relativize(workingDirectory.resolve(name)));
+            }
+        }
+        return files;
+    }
+
+    private List<Path> changedFiles(String nulSeparatedNames) throws IOException {
+        Path topLevel = Path.of(git("rev-parse", "--show-toplevel").trim());
+        List<Path> files = new ArrayList<>();
+        for (String name : nulSeparatedNames.split("\0")) {
+            if (name.isEmpty()) {
+                continue;
+            }
+            Path file = topLevel.resolve(name);
+            // Submodules are listed as paths too; their contents belong to another repository
+            if (!Files.isDirectory(file)) {
+                files.add(relativize(file));
+            }
+        }
+        return files;
+    }
+
+    private Path relativize(Path file) {
+        Path normalized = file.normalize();
+        return normalized.startsWith(workingDirectory) ? workingDirectory.relativize(normalized) : normalized;
+    }
+
+    private String git(String... arguments) throws IOException {
+        List<String> command = new ArrayList<>(arguments.length + 1);
+        command.add("git");
+        command.addAll(List.of(arguments));
+        Process process = new ProcessBuilder(command)
+                .directory(workingDirectory.toFile())
+                // Let git explain failures such as an unknown ref itself
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        process.getOutputStream().close();
+        byte[] output;
+        try (InputStream stdout = process.getInputStream()) {
+            output = stdout.readAllBytes();
+        }
+        try {
+            int exitCode = process.waitFor();
+            if (exitCode != 0) {
+                throw new IOException("git " + arguments[0] + " failed with exit code " + exitCode);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            process.destroy();
+            throw new IOException("Interrupted while running git " + arguments[0], e);
+        }
+        return new String(output, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2025-present Nils Christian Haugen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tabletest.formatter.cli;
+
+import org.crac.CheckpointException;
+import org.crac.Core;
+import org.crac.RestoreException;
+import org.tabletest.formatter.config.Config;
+import org.tabletest.formatter.config.IndentStyle;
+import org.tabletest.formatter.core.SourceFileFormatter;
+import org.tabletest.formatter.core.TableTestFormatter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Warms the formatter up on a bundled training corpus and checkpoints the process with
+ * Coordinated Restore at Checkpoint (CRaC), so that processes restored from the image format
+ * without loading classes or compiling hot code again.
+ *
+ * <p>The warm-up formats the corpus from memory with formatters of its own and drops them
+ * afterwards. It opens no files and looks up no .editorconfig, so the image holds no file
+ * handles and no configuration that could be stale once restored in another run; only
+ * immutable state, such as the Unicode tables, carries over.
+ */
+final class Checkpoint {
+
+    /**
+     * Rounds of the corpus to format, enough for the hot formatting methods to reach the
+     * optimizing compiler.
+     */
+    static final int WARM_UP_ROUNDS = 2_000;
+
+    private static final List<String> CORPUS =
+            List.of("training/TrainingTest.java", "training/TrainingTest.kt", "training/training.table");
+
+    // Each one reformats the corpus differently, so every indentation path gets compiled
+    static final List<Config> SOURCE_CONFIGS =
+            List.of(Config.SPACES_4, new Config(IndentStyle.SPACE, 2), new Config(IndentStyle.TAB, 4));
+
+    private Checkpoint() {}
+
+    /**
+     * Formats the training corpus {@code rounds} times, through the same entry points the CLI
+     * formats files with.
+     *
+     * @return the number of edits produced, so the work cannot be optimized away
+     */
+    static long warmUp(int rounds) throws IOException {
+        List<String> sources = new ArrayList<>();
+        List<String> tables = new ArrayList<>();
+        for (String name : CORPUS) {
+            (name.endsWith(".table") ? tables : sources).add(readResource(name));
+        }
+
+        SourceFileFormatter sourceFormatter = new SourceFileFormatter();
+        TableTestFormatter tableFormatter = new TableTestFormatter();
+        long edits = 0;
+        for (int round = 0; round < rounds; round++) {
+            Config config = SOURCE_CONFIGS.get(round % SOURCE_CONFIGS.size());
+            for (String source : sources) {
+                edits += sourceFormatter.formatEdits(source, config).size();
+            }
+            for (String table : tables) {
+                edits += tableFormatter.format(table, "", Config.NO_INDENT).length();
+            }
+        }
+        return edits;
+    }
+
+    /**
+     * The number of edits formatting the corpus's source files with {@code config} produces;
+     * zero would mean the config only exercises parsing, not reformatting.
+     */
+    static long sourceEdits(Config config) throws IOException {
+        SourceFileFormatter sourceFormatter = new SourceFileFormatter();
+        long edits = 0;
+        for (String name : CORPUS) {
+            if (!name.endsWith(".table")) {
+                edits += sourceFormatter.formatEdits(readResource(name), config).size();
+            }
+        }
+        return edits;
+    }
+
+    /**
+     * Checkpoints the process. Returns in a process restored from the image, unless the
+     * restore named a main class to run instead.
+     *
+     * @throws IOException                   if the JVM could not write the image, such as
+     *                                       when started without {@code -XX:CRaCCheckpointTo},
+     *                                       or could not restore the process
+     * @throws UnsupportedOperationException if the JVM does not support CRaC
+     */
+    static void checkpointRestore() throws IOException {
+        try {
+            Core.checkpointRestore();
+        } catch (CheckpointException | RestoreException e) {
+            throw new IOException(describe(e), e);
+        }
+    }
+
+    // The JVM reports each reason, such as a file left open, as a suppressed exception
+    private static String describe(Exception e) {
+        StringBuilder description =
+                new StringBuilder(e instanceof CheckpointException ? "checkpoint failed" : "restore failed");
+        if (e.getMessage() != null) {
+            description.append(": ").append(e.getMessage());
+        }
+        for (Throwable reason : e.getSuppressed()) {
+            description.append(System.lineSeparator()).append("  ").append(reason);
+        }
+        return description.toString();
+    }
+
+    private static String readResource(String name) throws IOException {
+        try (InputStream stream = Checkpoint.class.getResourceAsStream(name)) {
+            if (stream == null) {
+                throw new IOException("Training corpus is missing " + name);
+            }
+            return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,296 @@
+/*
+ * Copyright 2025-present Nils Christian Haugen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tabletest.formatter.cli;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Set;
+
+/**
+ * Hands a run of the CLI to a {@link FormatterDaemon}, starting one if none is listening.
+ *
+ * <p>Runs the daemon cannot serve, such as those reading a file list from standard input,
+ * and runs for which no daemon can be reached or started, are left to the calling process:
+ * the client then returns no exit code, and the caller formats in-process. A run the
+ * daemon drops before sending any output is repeated in-process too; one it drops after
+ * output has been passed on fails instead, so no output is printed twice.
+ */
+final class DaemonClient {
+
+    private static final long START_TIMEOUT_MILLIS = 10_000;
+    private static final long POLL_INTERVAL_MILLIS = 20;
+    private static final Set<PosixFilePermission> PRIVATE = PosixFilePermissions.fromString("rwx------");
+
+    private final Path socket;
+    private final boolean autoStart;
+
+    /**
+     * @param socket    the socket the daemon listens on
+     * @param autoStart whether to start a daemon if none listens on the socket
+     */
+    DaemonClient(Path socket, boolean autoStart) {
+        this.socket = socket;
+        this.autoStart = autoStart;
+    }
+
+    /**
+     * Runs the CLI arguments, which include {@code --use-daemon}, on a daemon for the
+     * current directory, copying its output to this process's standard output and error.
+     *
+     * @return the run's exit code, or empty if it is to be run in-process instead
+     */
+    static OptionalInt run(List<String> args) {
+        if (!canForward(args)) {
+            return OptionalInt.empty();
+        }
+        try {
+            Optional<Path> socketOption = socketOption(args);
+            Path socket = socketOption.isPresent() ? socketOption.get() : defaultSocket(VersionProvider.version());
+            List<String> forwarded =
+                    args.stream().filter(arg -> !arg.equals("--use-daemon")).toList();
+            return new DaemonClient(socket, true).run(forwarded, Path.of("").toAbsolutePath(), System.out, System.err);
+        } catch (IOException e) {
+            System.err.println("Warning: not using daemon, formatting in-process: " + e.getMessage());
+            return OptionalInt.empty();
+        }
+    }
+
+    /**
+     * Runs the CLI arguments on the daemon as if started in {@code workingDirectory}.
+     *
+     * @return the run's exit code, or empty if no daemon could be reached or it dropped the
+     *         run before sending anything
+     */
+    OptionalInt run(List<String> args, Path workingDirectory, OutputStream out, PrintStream err) {
+        SocketChannel channel = connectOrStart();
+        if (channel == null) {
+            return OptionalInt.empty();
+        }
+        boolean received = false;
+        try (channel) {
+            DataOutputStream request =
+                    new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            request.writeUTF(workingDirectory.toString());
+            request.writeInt(args.size());
+            for (String arg : args) {
+                request.writeUTF(arg);
+            }
+            request.flush();
+
+            DataInputStream response = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            while (true) {
+                int type = response.readByte();
+                if (type == FormatterDaemon.EXIT) {
+                    return OptionalInt.of(response.readInt());
+                }
+                byte[] bytes = new byte[response.readInt()];
+                response.readFully(bytes);
+                OutputStream target = type == FormatterDaemon.STDERR ? err : out;
+                target.write(bytes);
+                target.flush();
+                received = true;
+            }
+        } catch (IOException e) {
+            if (received) {
+                err.println("Error: lost connection to daemon: " + e.getMessage());
+                return OptionalInt.of(1);
+            }
+            err.println("Warning: lost connection to daemon, formatting in-process: " + e.getMessage());
+            return OptionalInt.empty();
+        }
+    }
+
+    /**
+     * The socket a daemon of this version listens on for this user, unless told otherwise:
+     * in {@code $XDG_RUNTIME_DIR} if set, in the temporary directory otherwise. Versions do
+     * not share a daemon, so an upgrade never talks to an old one.
+     *
+     * @throws IOException if the socket's directory is not private to this user, as another
+     *                     user could then listen on it in the daemon's place
+     */
+    static Path defaultSocket(String version) throws IOException {
+        String runtimeDirectory = System.getenv("XDG_RUNTIME_DIR");
+        Path directory = runtimeDirectory != null && !runtimeDirectory.isEmpty()
+                ? Path.of(runtimeDirectory, "tabletest-format")
+                : Path.of(System.getProperty("java.io.tmpdir"), "tabletest-format-" + System.getProperty("user.name"));
+        return requirePrivateDirectory(directory).resolve("daemon-" + version + ".sock");
+    }
+
+    /**
+     * Creates the directory private to this user if it does not exist, and checks that it is
+     * a directory owned by this user that no one else can access. An existing one may have
+     * been created by another user of a shared temporary directory.
+     *
+     * @throws IOException if the directory cannot be created or is not private to this user
+     */
+    static Path requirePrivateDirectory(Path directory) throws IOException {
+        try {
+            Files.createDirectory(directory, PosixFilePermissions.asFileAttribute(PRIVATE));
+        } catch (FileAlreadyExistsException e) {
+            // Checked below whoever created it
+        } catch (UnsupportedOperationException e) {
+            // Non-POSIX filesystem (e.g. Windows): only the owner can be checked
+            try {
+                Files.createDirectory(directory);
+            } catch (FileAlreadyExistsException alreadyExists) {
+                // Checked below whoever created it
+            }
+        }
+        UserPrincipal user = directory
+                .getFileSystem()
+                .getUserPrincipalLookupService()
+                .lookupPrincipalByName(System.getProperty("user.name"));
+        if (!Files.isDirectory(directory, LinkOption.NOFOLLOW_LINKS)
+                || !Files.getOwner(directory, LinkOption.NOFOLLOW_LINKS).equals(user)) {
+            throw new IOException(directory + " is not a directory owned by " + user.getName());
+        }
+        PosixFileAttributeView posix =
+                Files.getFileAttributeView(directory, PosixFileAttributeView.class, LinkOption.NOFOLLOW_LINKS);
+        if (posix != null && !posix.readAttributes().permissions().equals(PRIVATE)) {
+            throw new IOException(directory + " is accessible to other users than " + user.getName());
+        }
+        return directory;
+    }
+
+    /**
+     * Whether a daemon can serve the run: it has no standard input of the client to read a
+     * file list or content from, does not start daemons itself, does not watch, which would
+     * keep it from serving other clients, and does not checkpoint, which must happen in the
+     * client's own process.
+     */
+    static boolean canForward(List<String> args) {
+        for (int i = 0; i < args.size(); i++) {
+            String arg = args.get(i);
+            boolean filesFromStdin = arg.equals("--files-from=-")
+                    || (arg.equals("--files-from")
+                            && i + 1 < args.size()
+                            && args.get(i + 1).equals("-"));
+            boolean contentFromStdin = arg.equals("--stdin-filepath") || arg.startsWith("--stdin-filepath=");
+            if (filesFromStdin
+                    || contentFromStdin
+                    || arg.equals("--daemon")
+                    || arg.equals("--watch")
+                    || arg.equals("--checkpoint")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Optional<Path> socketOption(List<String> args) {
+        for (int i = 0; i < args.size(); i++) {
+            String arg = args.get(i);
+            if (arg.startsWith("--daemon-socket=")) {
+                return Optional.of(Path.of(arg.substring("--daemon-socket=".length())));
+            }
+            if (arg.equals("--daemon-socket") && i + 1 < args.size()) {
+                return Optional.of(Path.of(args.get(i + 1)));
+            }
+        }
+        return Optional.empty();
+    }
+
+    private SocketChannel connectOrStart() {
+        SocketChannel channel = connect();
+        return channel == null && autoStart ? startAndConnect() : channel;
+    }
+
+    /**
+     * The command that starts this CLI as a daemon: the running executable if this is a
+     * native image, the running JVM on the same class path otherwise. Null if the native
+     * executable cannot be found.
+     */
+    private List<String> daemonCommand() {
+        List<String> command = new ArrayList<>();
+        if (System.getProperty("org.graalvm.nativeimage.imagecode") != null) {
+            Optional<String> executable = ProcessHandle.current().info().command();
+            if (executable.isEmpty()) {
+                return null;
+            }
+            command.add(executable.get());
+        } else {
+            command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(TableTestFormatterCli.class.getName());
+        }
+        command.addAll(
+                List.of("--daemon", "--daemon-socket", socket.toAbsolutePath().toString()));
+        return command;
+    }
+
+    private SocketChannel connect() {
+        try {
+            return SocketChannel.open(UnixDomainSocketAddress.of(socket));
+        } catch (IOException e) {
+            // No daemon is listening
+            return null;
+        }
+    }
+
+    /**
+     * Starts a daemon in a JVM of its own, detached from this one, and waits for it to listen.
+     */
+    private SocketChannel startAndConnect() {
+        List<String> command = daemonCommand();
+        if (command == null) {
+            return null;
+        }
+        ProcessBuilder daemon = new ProcessBuilder(command)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.DISCARD);
+        try {
+            daemon.start();
+        } catch (IOException e) {
+            return null;
+        }
+
+        long deadline = System.nanoTime() + START_TIMEOUT_MILLIS * 1_000_000;
+        while (System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(POLL_INTERVAL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            SocketChannel channel = connect();
+            if (channel != null) {
+                return channel;
+            }
+        }
+        return null;
+    }
+}
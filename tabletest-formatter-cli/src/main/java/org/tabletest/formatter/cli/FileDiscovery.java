@@ -17,23 +17,116 @@ package org.tabletest.formatter.cli;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
-
-import static java.util.stream.Collectors.toList;
+import java.util.stream.StreamSupport;
 
 /**
  * Discovers files with supported extensions (.table, .java, .kt) from given paths.
  * Recursively traverses directories and returns a sorted list of matching files.
+ *
+ * <p>Directories are listed in parallel on the common fork-join pool. A directory is not
+ * entered when its name is in the pruned set (by default version control and build output
+ * directories), when a {@code .gitignore} file ignores it, or when an exclude glob matches
+ * it, so ignored trees cost no I/O. The build output names {@code target} and {@code build}
+ * are only pruned at a module root, next to a {@code pom.xml}, {@code build.gradle} or
+ * {@code build.gradle.kts}; elsewhere they are ordinary directories, such as a package.
+ * Files are filtered by extension, {@code .gitignore} rules and include/exclude globs as
+ * they are listed.
+ *
+ * <p>{@code .gitignore} files are read in every directory traversed, and in the parent
+ * directories of an input directory up to the root of its git repository. Rules in deeper
+ * files take precedence, and the last matching rule in a file wins, as in git.
+ *
+ * <p>Globs use {@link java.nio.file.FileSystem#getPathMatcher} syntax and are matched
+ * against the path as discovered: the input path joined with the path beneath it, with
+ * {@code .} segments removed. Paths given as input files or directories are always
+ * taken, whatever the pruned set and {@code .gitignore} files say; only the globs apply
+ * to input files.
  */
 public class FileDiscovery {
 
+    /**
+     * Directories not entered by default: version control metadata and build output, which
+     * hold no sources to format but often most of a repository's files. {@code target} and
+     * {@code build} only count as build output at a module root.
+     */
+    public static final Set<String> DEFAULT_PRUNED_DIRECTORIES =
+            Set.of(".git", "target", "build", "node_modules", ".gradle");
+
+    /**
+     * Pruned names that are only build output next to a build file; a source package can
+     * have the same name.
+     */
+    private static final Set<String> BUILD_OUTPUT_DIRECTORIES = Set.of("target", "build");
+
+    private static final Set<String> BUILD_FILES = Set.of("pom.xml", "build.gradle", "build.gradle.kts");
+
     private static final Set<String> SUPPORTED_EXTENSIONS = Set.of(".table", ".java", ".kt");
 
+    private static final String GIT_IGNORE = ".gitignore";
+
+    private final Set<String> prunedDirectories;
+    private final boolean gitIgnore;
+    private final List<PathMatcher> includes;
+    private final List<PathMatcher> excludes;
+    private final List<PathMatcher> excludedDirectories;
+
+    public FileDiscovery() {
+        this(DEFAULT_PRUNED_DIRECTORIES);
+    }
+
+    /**
+     * Creates a discovery that does not enter directories with the given names.
+     *
+     * @param prunedDirectories names of directories to skip while traversing; directories
+     *                          given as input paths are traversed regardless
+     */
+    public FileDiscovery(Set<String> prunedDirectories) {
+        this(prunedDirectories, true, List.of(), List.of());
+    }
+
+    /**
+     * Creates a discovery with all filters configured. Globs are compiled once, here.
+     *
+     * @param prunedDirectories names of directories to skip while traversing
+     * @param gitIgnore         whether to honour {@code .gitignore} files
+     * @param includeGlobs      globs of which a file must match at least one, if any are given
+     * @param excludeGlobs      globs of files and directories to skip; a directory is also
+     *                          skipped when a glob ending in {@code /**} names it
+     */
+    public FileDiscovery(
+            Set<String> prunedDirectories, boolean gitIgnore, List<String> includeGlobs, List<String> excludeGlobs) {
+        this.prunedDirectories = Set.copyOf(prunedDirectories);
+        this.gitIgnore = gitIgnore;
+        this.includes = includeGlobs.stream().map(FileDiscovery::compileGlob).toList();
+        this.excludes = excludeGlobs.stream().map(FileDiscovery::compileGlob).toList();
+        this.excludedDirectories = excludeGlobs.stream()
+                .filter(glob -> glob.endsWith("/**"))
+                .map(glob -> compileGlob(glob.substring(0, glob.length() - "/**".length())))
+                .toList();
+    }
+
     /**
      * Discovers all files with supported extensions from the given input paths.
      * If a path is a file, it is included if it has a supported extension.
@@ -44,27 +137,327 @@ public class FileDiscovery {
      * @throws IOException if an I/O error occurs during discovery
      */
     public List<Path> discover(List<Path> inputPaths) throws IOException {
-        List<Path> candidates = new ArrayList<>();
-        for (Path path : inputPaths) {
-            candidates.addAll(discoverFromPath(path));
+        try (Stream<Path> files = stream(inputPaths)) {
+            return files.sorted().toList();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
         }
-        return candidates.stream().filter(this::hasSupportedExtension).sorted().collect(toList());
     }
 
-    private List<Path> discoverFromPath(Path path) throws IOException {
-        return Files.isDirectory(path) ? walkDirectory(path) : List.of(path);
+    /**
+     * Streams the files with supported extensions from the given input paths as they are
+     * found, so they can be processed while the rest of the tree is still being listed.
+     *
+     * <p>Input paths are taken in sorted order, and each directory's entries are streamed
+     * sorted by name, which yields the same order as {@link #discover} unless input paths
+     * overlap. Subdirectories are listed ahead of the stream on other threads.
+     *
+     * @param inputPaths paths to files or directories to discover
+     * @return stream of discovered files with supported extensions
+     * @throws UncheckedIOException if a directory cannot be listed, when the stream reaches it
+     */
+    public Stream<Path> stream(List<Path> inputPaths) {
+        return stream(inputPaths, directory -> {});
     }
 
-    private List<Path> walkDirectory(Path directory) throws IOException {
-        try (Stream<Path> paths = Files.walk(directory)) {
-            return paths.filter(Files::isRegularFile).toList();
-        } catch (UncheckedIOException e) {
-            throw e.getCause();
+    /**
+     * Streams files like {@link #stream(List)}, and passes each directory entered to
+     * {@code enteredDirectories} before listing it. It is called from the threads listing
+     * the directories, so must be thread-safe.
+     */
+    Stream<Path> stream(List<Path> inputPaths, Consumer<Path> enteredDirectories) {
+        List<Object> roots = new ArrayList<>(inputPaths.size());
+        for (Path path : inputPaths.stream().sorted().toList()) {
+            if (Files.isDirectory(path)) {
+                List<IgnoreScope> scopes = gitIgnore ? enclosingScopes(path) : List.of();
+                roots.add(ForkJoinPool.commonPool().submit(new DirectoryListing(path, scopes, enteredDirectories)));
+            } else if (hasSupportedExtension(path) && matchesGlobs(path)) {
+                roots.add(path);
+            }
+        }
+        return StreamSupport.stream(new DepthFirstFiles(roots), false);
+    }
+
+    /**
+     * Whether listing the directory of {@code file} would yield it: whether it has a
+     * supported extension, matches the globs and is not ignored by the {@code .gitignore}
+     * files of its directory and those above. Whether its directory would be entered is
+     * not considered.
+     *
+     * @throws UncheckedIOException if a {@code .gitignore} file cannot be read
+     */
+    boolean accepts(Path file) {
+        return hasSupportedExtension(file) && matchesGlobs(file) && !isGitIgnored(file, false);
+    }
+
+    /**
+     * Whether listing the parent of {@code directory} would enter it: whether it is neither
+     * pruned, excluded nor ignored by the {@code .gitignore} files of its parent and those
+     * above.
+     *
+     * @throws UncheckedIOException if a {@code .gitignore} file cannot be read
+     */
+    boolean enters(Path directory) {
+        Path parent = directory.toAbsolutePath().normalize().getParent();
+        boolean moduleRoot = BUILD_FILES.stream().anyMatch(buildFile -> Files.isRegularFile(parent.resolve(buildFile)));
+        return !isPruned(directory.getFileName().toString(), moduleRoot)
+                && !isExcludedDirectory(directory)
+                && !isGitIgnored(directory, true);
+    }
+
+    private boolean isGitIgnored(Path path, boolean directory) {
+        if (!gitIgnore) {
+            return false;
+        }
+        Path parent = path.toAbsolutePath().normalize().getParent();
+        List<IgnoreScope> scopes = new ArrayList<>();
+        Path gitIgnoreFile = parent.resolve(GIT_IGNORE);
+        if (Files.isRegularFile(gitIgnoreFile)) {
+            scopes.add(new IgnoreScope(readGitIgnore(gitIgnoreFile), ""));
         }
+        scopes.addAll(enclosingScopes(parent));
+        return isIgnored(scopes, path.getFileName().toString(), directory);
+    }
+
+    /**
+     * Whether a subdirectory is pruned by name, given whether its parent is a module root.
+     */
+    private boolean isPruned(String name, boolean moduleRoot) {
+        return prunedDirectories.contains(name) && (moduleRoot || !BUILD_OUTPUT_DIRECTORIES.contains(name));
     }
 
     private boolean hasSupportedExtension(Path path) {
         String fileName = path.getFileName().toString();
         return SUPPORTED_EXTENSIONS.stream().anyMatch(fileName::endsWith);
     }
+
+    private boolean matchesGlobs(Path file) {
+        if (includes.isEmpty() && excludes.isEmpty()) {
+            return true;
+        }
+        Path path = file.normalize();
+        return (includes.isEmpty() || matchesAny(includes, path)) && !matchesAny(excludes, path);
+    }
+
+    private boolean isExcludedDirectory(Path directory) {
+        if (excludes.isEmpty()) {
+            return false;
+        }
+        Path path = directory.normalize();
+        return matchesAny(excludes, path) || matchesAny(excludedDirectories, path);
+    }
+
+    private static boolean matchesAny(List<PathMatcher> matchers, Path path) {
+        for (PathMatcher matcher : matchers) {
+            if (matcher.matches(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static PathMatcher compileGlob(String glob) {
+        return FileSystems.getDefault().getPathMatcher("glob:" + glob);
+    }
+
+    /**
+     * The {@code .gitignore} rules of the parent directories of an input directory, nearest
+     * first, up to the root of its repository. Outside a repository they do not apply.
+     */
+    private static List<IgnoreScope> enclosingScopes(Path inputDirectory) {
+        List<IgnoreScope> scopes = new ArrayList<>();
+        Path directory = inputDirectory.toAbsolutePath().normalize();
+        String prefix = "";
+        while (!Files.exists(directory.resolve(".git"))) {
+            Path parent = directory.getParent();
+            if (parent == null) {
+                return List.of();
+            }
+            prefix = directory.getFileName() + "/" + prefix;
+            directory = parent;
+            Path gitIgnoreFile = directory.resolve(GIT_IGNORE);
+            if (Files.isRegularFile(gitIgnoreFile)) {
+                scopes.add(new IgnoreScope(readGitIgnore(gitIgnoreFile), prefix));
+            }
+        }
+        return scopes;
+    }
+
+    private static GitIgnore readGitIgnore(Path file) {
+        try {
+            return GitIgnore.parse(Files.readAllLines(file));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Whether the {@code .gitignore} rules in scope ignore an entry. The nearest file with
+     * a matching rule decides.
+     */
+    private static boolean isIgnored(List<IgnoreScope> scopes, String name, boolean directory) {
+        for (IgnoreScope scope : scopes) {
+            switch (scope.rules().match(scope.prefix() + name, name, directory)) {
+                case IGNORED -> {
+                    return true;
+                }
+                case NOT_IGNORED -> {
+                    return false;
+                }
+                case NO_MATCH -> {
+                    // Defer to the enclosing directory's rules
+                }
+            }
+        }
+        return false;
+    }
+
+    private static List<IgnoreScope> prepend(IgnoreScope scope, List<IgnoreScope> scopes) {
+        List<IgnoreScope> result = new ArrayList<>(scopes.size() + 1);
+        result.add(scope);
+        result.addAll(scopes);
+        return result;
+    }
+
+    private static List<IgnoreScope> enter(List<IgnoreScope> scopes, String directoryName) {
+        if (scopes.isEmpty()) {
+            return scopes;
+        }
+        List<IgnoreScope> result = new ArrayList<>(scopes.size());
+        for (IgnoreScope scope : scopes) {
+            result.add(scope.enter(directoryName));
+        }
+        return result;
+    }
+
+    /**
+     * Symbolic links to files are followed; links to directories are not, so traversal
+     * cannot loop.
+     */
+    private static boolean isRegularFile(Path path, BasicFileAttributes attributes) {
+        return attributes.isRegularFile() || (attributes.isSymbolicLink() && Files.isRegularFile(path));
+    }
+
+    /**
+     * The rules of one {@code .gitignore} file, and the path from its directory to the
+     * directory being listed, ending in {@code /} unless empty.
+     */
+    private record IgnoreScope(GitIgnore rules, String prefix) {
+
+        IgnoreScope enter(String directoryName) {
+            return new IgnoreScope(rules, prefix + directoryName + "/");
+        }
+    }
+
+    /**
+     * Lists one directory: its matching files, and a forked listing for each subdirectory,
+     * in path order. A subdirectory sorts as its name followed by a separator, since that
+     * is where all paths beneath it fall among its siblings.
+     */
+    private final class DirectoryListing extends RecursiveTask<List<Object>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Path directory;
+        // Nearest first
+        private final List<IgnoreScope> scopes;
+        private final Consumer<Path> enteredDirectories;
+
+        DirectoryListing(Path directory, List<IgnoreScope> scopes, Consumer<Path> enteredDirectories) {
+            this.directory = directory;
+            this.scopes = scopes;
+            this.enteredDirectories = enteredDirectories;
+        }
+
+        @Override
+        protected List<Object> compute() {
+            enteredDirectories.accept(directory);
+            List<Path> children = new ArrayList<>();
+            List<BasicFileAttributes> childAttributes = new ArrayList<>();
+            List<IgnoreScope> localScopes = scopes;
+            boolean moduleRoot = false;
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+                for (Path child : stream) {
+                    BasicFileAttributes attributes =
+                            Files.readAttributes(child, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    if (gitIgnore && attributes.isRegularFile() && child.endsWith(GIT_IGNORE)) {
+                        GitIgnore rules = readGitIgnore(child);
+                        if (!rules.isEmpty()) {
+                            localScopes = prepend(new IgnoreScope(rules, ""), scopes);
+                        }
+                    }
+                    if (attributes.isRegularFile()
+                            && BUILD_FILES.contains(child.getFileName().toString())) {
+                        moduleRoot = true;
+                    }
+                    children.add(child);
+                    childAttributes.add(attributes);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            // Rules and build files apply to every sibling, so entries are sorted out once all are seen
+            Map<String, Object> entries = new TreeMap<>();
+            for (int i = 0; i < children.size(); i++) {
+                Path child = children.get(i);
+                BasicFileAttributes attributes = childAttributes.get(i);
+                String name = child.getFileName().toString();
+                if (attributes.isDirectory()) {
+                    if (!isPruned(name, moduleRoot)
+                            && !isIgnored(localScopes, name, true)
+                            && !isExcludedDirectory(child)) {
+                        entries.put(
+                                name + child.getFileSystem().getSeparator(),
+                                new DirectoryListing(child, enter(localScopes, name), enteredDirectories));
+                    }
+                } else if (isRegularFile(child, attributes)
+                        && hasSupportedExtension(child)
+                        && !isIgnored(localScopes, name, false)
+                        && matchesGlobs(child)) {
+                    entries.put(name, child);
+                }
+            }
+            List<Object> listing = new ArrayList<>(entries.values());
+            for (Object entry : listing) {
+                if (entry instanceof DirectoryListing subdirectory) {
+                    subdirectory.fork();
+                }
+            }
+            return listing;
+        }
+    }
+
+    /**
+     * Walks listings depth first, waiting for each subdirectory's listing only when the
+     * stream reaches it.
+     */
+    private static final class DepthFirstFiles extends Spliterators.AbstractSpliterator<Path> {
+
+        private final Deque<Iterator<Object>> stack = new ArrayDeque<>();
+
+        DepthFirstFiles(List<Object> roots) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            stack.push(roots.iterator());
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean tryAdvance(Consumer<? super Path> action) {
+            while (!stack.isEmpty()) {
+                Iterator<Object> entries = stack.peek();
+                if (!entries.hasNext()) {
+                    stack.pop();
+                    continue;
+                }
+                Object entry = entries.next();
+                if (entry instanceof Path file) {
+                    action.accept(file);
+                    return true;
+                }
+                stack.push(((ForkJoinTask<List<Object>>) entry).join().iterator());
+            }
+            return false;
+        }
+    }
 }
@@ -17,13 +17,20 @@ package org.tabletest.formatter.cli;
 
 import org.tabletest.formatter.config.Config;
 import org.tabletest.formatter.config.EditorConfigProvider;
+import org.tabletest.formatter.core.LineRange;
 import org.tabletest.formatter.core.SourceFileFormatter;
+import org.tabletest.formatter.core.StreamingTableFormatter;
+import org.tabletest.formatter.core.TableMatch;
 import org.tabletest.formatter.core.TableTestFormatter;
+import org.tabletest.formatter.core.TextEdit;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
 import java.util.Objects;
+import java.util.UUID;
+import java.util.function.Supplier;
 
 /**
  * Formats individual files containing TableTest tables.
@@ -34,17 +41,47 @@ import java.util.Objects;
  * Searches for .editorconfig in the file's directory and parent directories. If no
  * .editorconfig is found, uses sensible defaults (4 spaces for source files, no indentation
  * for .table files).
+ *
+ * <p><strong>Large files:</strong> .table files larger than {@link #DEFAULT_STREAMING_THRESHOLD}
+ * are formatted with {@link StreamingTableFormatter} into a temporary file next to the original,
+ * so neither the file nor its formatted copy is held in memory. The copy is only written if
+ * the file changes, and not at all when {@link #check checking}.
  */
 public class FileFormatter {
 
-    private final EditorConfigProvider configProvider;
+    /**
+     * Size in bytes from which standalone .table files are streamed instead of read into memory.
+     */
+    static final long DEFAULT_STREAMING_THRESHOLD = 16 * 1024 * 1024;
+
+    private final Supplier<EditorConfigProvider> configProviderFactory;
+    // Created on first lookup, so runs that format nothing never load ec4j
+    private volatile EditorConfigProvider configProvider;
     private final TableTestFormatter tableFormatter;
     private final SourceFileFormatter sourceFormatter;
+    private final StreamingTableFormatter streamingFormatter;
+    private final long streamingThreshold;
 
     public FileFormatter() {
-        this.configProvider = new EditorConfigProvider();
+        this(DEFAULT_STREAMING_THRESHOLD);
+    }
+
+    // Package-private constructor for testing
+    FileFormatter(long streamingThreshold) {
+        this(EditorConfigProvider::new, streamingThreshold);
+    }
+
+    /**
+     * Creates a formatter that looks up .editorconfig settings through the provider
+     * {@code configProviderFactory} creates, such as one that follows edits for a long-running
+     * daemon. The provider is created when the first file needs its configuration.
+     */
+    FileFormatter(Supplier<EditorConfigProvider> configProviderFactory, long streamingThreshold) {
+        this.configProviderFactory = configProviderFactory;
         this.tableFormatter = new TableTestFormatter();
         this.sourceFormatter = new SourceFileFormatter();
+        this.streamingFormatter = new StreamingTableFormatter();
+        this.streamingThreshold = streamingThreshold;
     }
 
     /**
@@ -55,33 +92,188 @@ public class FileFormatter {
      * @throws IOException if an I/O error occurs
      */
     public FormattingResult format(Path file) throws IOException {
-        String content = Files.readString(file);
+        if (isStreamed(file)) {
+            return formatLargeTableFile(file, true);
+        }
+        return format(file, Files.readString(file));
+    }
+
+    /**
+     * Like {@link #format(Path)}, for when the result is only reported: a file that is
+     * streamed is compared with its formatted table without writing a formatted copy.
+     *
+     * @param file the file to check
+     * @return formatting result with changed flag, and formatted content unless streamed
+     * @throws IOException if an I/O error occurs
+     */
+    public FormattingResult check(Path file) throws IOException {
+        if (isStreamed(file)) {
+            return formatLargeTableFile(file, false);
+        }
+        return format(file, Files.readString(file));
+    }
+
+    /**
+     * Formats content already read from a file, using configuration from .editorconfig files.
+     *
+     * <p>Lets callers read files on other threads than they format them on. Files for which
+     * {@link #isStreamed} is true must be formatted with {@link #format(Path)} instead.
+     *
+     * @param file    the file the content was read from
+     * @param content the content of the file
+     * @return formatting result with changed flag and formatted content
+     */
+    public FormattingResult format(Path file, String content) {
+        return format(file, content, null, RunStatistics.disabled());
+    }
+
+    /**
+     * Formats only the tables that share a line with {@code changedLines}, copying every
+     * other table as it is. A standalone .table file is one table, so it is formatted whole
+     * if any of its lines changed.
+     *
+     * @param file         the file the content was read from
+     * @param content      the content of the file
+     * @param changedLines the lines whose tables to format
+     * @return formatting result with changed flag and formatted content
+     */
+    public FormattingResult format(Path file, String content, List<LineRange> changedLines) {
+        Objects.requireNonNull(changedLines, "changedLines must not be null");
+        return format(file, content, changedLines, RunStatistics.disabled());
+    }
+
+    /**
+     * Formats content already read from a file as {@link #format(Path, String)} does, or only
+     * the tables touching {@code changedLines} if not null, recording into {@code statistics}
+     * the time taken to look up the configuration, find the tables and format them, and the
+     * time, rows and cells of each table.
+     */
+    FormattingResult format(Path file, String content, List<LineRange> changedLines, RunStatistics statistics) {
         String fileName = file.getFileName().toString();
 
         if (fileName.endsWith(".table")) {
-            return formatStandaloneTableFile(file, content);
+            return changedLines != null && changedLines.isEmpty()
+                    ? new FormattingResult(file, false, content)
+                    : formatStandaloneTableFile(file, content, statistics);
         } else if (fileName.endsWith(".java") || fileName.endsWith(".kt")) {
-            return formatSourceFile(file, content);
+            return formatSourceFile(file, content, changedLines, statistics);
         } else {
             return new FormattingResult(file, false, content);
         }
     }
 
-    private FormattingResult formatStandaloneTableFile(Path file, String content) {
-        Objects.requireNonNull(content, "content must not be null");
+    /**
+     * Formats content that need not be on disk, writing the result to {@code out} front to
+     * back as each table is formatted. The file is neither read nor written: its name selects
+     * how the content is formatted, and its location the .editorconfig settings that apply.
+     * Content of unsupported files is written as it is.
+     *
+     * @param file    the file the content is formatted as
+     * @param content the content to format
+     * @param out     the destination for the formatted content
+     * @throws IOException if writing to {@code out} fails
+     */
+    public void formatTo(Path file, CharSequence content, Appendable out) throws IOException {
+        String fileName = file.getFileName().toString();
 
-        Config config = configProvider.lookupConfig(file, Config.NO_INDENT);
+        if (fileName.endsWith(".table")) {
+            tableFormatter.formatTo(content.toString(), "", configFor(file), out);
+        } else if (fileName.endsWith(".java") || fileName.endsWith(".kt")) {
+            sourceFormatter.formatTo(content, configFor(file), out);
+        } else {
+            out.append(content);
+        }
+    }
 
-        String formatted = tableFormatter.format(content, "", config);
-        boolean changed = !formatted.equals(content);
-        return new FormattingResult(file, changed, formatted);
+    /**
+     * Whether the file is formatted by streaming it from disk to a temporary file, rather
+     * than from its content read into memory.
+     *
+     * @param file the file to format
+     * @return true for .table files at or above the streaming threshold
+     * @throws IOException if the file size cannot be read
+     */
+    public boolean isStreamed(Path file) throws IOException {
+        return file.getFileName().toString().endsWith(".table") && Files.size(file) >= streamingThreshold;
     }
 
-    private FormattingResult formatSourceFile(Path file, String content) {
-        Config config = configProvider.lookupConfig(file, Config.SPACES_4);
+    /**
+     * The configuration the file is formatted with: from .editorconfig, defaulting to no
+     * indentation for .table files and four spaces for source files.
+     */
+    Config configFor(Path file) {
+        boolean tableFile = file.getFileName().toString().endsWith(".table");
+        return configProvider().lookupConfig(file, tableFile ? Config.NO_INDENT : Config.SPACES_4);
+    }
 
-        String formatted = sourceFormatter.format(content, config);
+    private EditorConfigProvider configProvider() {
+        EditorConfigProvider provider = configProvider;
+        if (provider == null) {
+            synchronized (this) {
+                provider = configProvider;
+                if (provider == null) {
+                    provider = configProviderFactory.get();
+                    configProvider = provider;
+                }
+            }
+        }
+        return provider;
+    }
+
+    private FormattingResult formatStandaloneTableFile(Path file, String content, RunStatistics statistics) {
+        Objects.requireNonNull(content, "content must not be null");
+
+        Config config = configFor(file, statistics);
+        RunStatistics.Timer timer = statistics.start(RunStatistics.Phase.FORMATTING, file);
+        String formatted = tableFormatter.format(content, "", config, statistics.tableListener(file));
+        timer.stop();
         boolean changed = !formatted.equals(content);
         return new FormattingResult(file, changed, formatted);
     }
+
+    private FormattingResult formatLargeTableFile(Path file, boolean write) throws IOException {
+        Config config = configFor(file);
+        if (!write) {
+            return new FormattingResult(file, streamingFormatter.format(file, null, config), null);
+        }
+
+        // Created by the streaming formatter only if the table changes
+        Path tempFile = file.toAbsolutePath().resolveSibling(".tabletest-format-" + UUID.randomUUID() + ".tmp");
+        try {
+            if (streamingFormatter.format(file, tempFile, config)) {
+                return new FormattingResult(file, true, null, tempFile);
+            }
+            return new FormattingResult(file, false, null);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+    }
+
+    private FormattingResult formatSourceFile(
+            Path file, String content, List<LineRange> changedLines, RunStatistics statistics) {
+        Config config = configFor(file, statistics);
+
+        RunStatistics.Timer timer = statistics.start(RunStatistics.Phase.EXTRACTION, file);
+        List<TableMatch> tables = changedLines == null
+                ? sourceFormatter.findTables(content)
+                : sourceFormatter.findTables(content, changedLines);
+        timer.stop();
+
+        timer = statistics.start(RunStatistics.Phase.FORMATTING, file);
+        List<TextEdit> edits = sourceFormatter.formatEdits(content, tables, config, statistics.tableListener(file));
+        // Only changed tables produce edits: no edits means unchanged, without comparing the whole file
+        FormattingResult result = edits.isEmpty()
+                ? new FormattingResult(file, false, content)
+                : new FormattingResult(file, true, TextEdit.applyAll(content, edits));
+        timer.stop();
+        return result;
+    }
+
+    private Config configFor(Path file, RunStatistics statistics) {
+        RunStatistics.Timer timer = statistics.start(RunStatistics.Phase.CONFIG, file);
+        Config config = configFor(file);
+        timer.stop();
+        return config;
+    }
 }
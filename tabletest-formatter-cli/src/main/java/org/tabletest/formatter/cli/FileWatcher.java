@@ -0,0 +1,228 @@
+/*
+ * Copyright 2025-present Nils Christian Haugen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tabletest.formatter.cli;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * Watches the directories {@link FileDiscovery} enters and reports the files created or
+ * modified in them, in batches.
+ *
+ * <p>Editors save in bursts of events, such as a write to a temporary file followed by a
+ * rename, so a batch is handed over only once no event has arrived for the debounce
+ * interval. Changed files are filtered as discovery filters them, and directories created
+ * later are watched as discovery would enter them. Input files are watched through their
+ * directory.
+ *
+ * <p>Rewriting a file raises events like any other save. The watcher recognises the
+ * formatter's own writes by the file's identity, size and modification time, recorded with
+ * {@link #recordWrite} right after the write, and leaves them out.
+ */
+final class FileWatcher implements Closeable {
+
+    /**
+     * Quiet time after the last event before a batch is handed over.
+     */
+    static final Duration DEFAULT_DEBOUNCE = Duration.ofMillis(100);
+
+    private final FileDiscovery discovery;
+    private final Duration debounce;
+    private final WatchService watchService;
+    // Paths are kept absolute, since one directory can be given in several forms and is
+    // registered once; the maps below lead back to the form discovery reports paths in
+    private final Map<WatchKey, Path> directories = new ConcurrentHashMap<>();
+    // Directories discovery entered, as opposed to those watched only for input files in them
+    private final Map<Path, Path> enteredDirectories = new ConcurrentHashMap<>();
+    private final Map<Path, Path> inputFiles = new ConcurrentHashMap<>();
+    private final Map<Path, FileState> ownWrites = new ConcurrentHashMap<>();
+
+    FileWatcher(FileDiscovery discovery, Duration debounce) throws IOException {
+        this.discovery = discovery;
+        this.debounce = debounce;
+        this.watchService = FileSystems.getDefault().newWatchService();
+    }
+
+    /**
+     * Discovers the files under the input paths, like {@link FileDiscovery#stream(List)},
+     * and watches every directory discovery enters and the directory of every input file.
+     *
+     * @throws UncheckedIOException if a directory cannot be listed or watched, when the
+     *                              stream reaches it
+     */
+    Stream<Path> discover(List<Path> inputPaths) {
+        for (Path path : inputPaths) {
+            if (Files.isRegularFile(path)) {
+                Path file = absolute(path);
+                inputFiles.put(file, path);
+                watch(file.getParent());
+            }
+        }
+        return discovery.stream(inputPaths, directory -> {
+            enteredDirectories.put(absolute(directory), directory);
+            watch(absolute(directory));
+        });
+    }
+
+    /**
+     * Waits until files have changed, then until no event has arrived for the debounce
+     * interval.
+     *
+     * @return the changed files, sorted; none of them written by the formatter itself
+     * @throws UncheckedIOException if a new directory cannot be listed or watched
+     * @throws InterruptedException if interrupted while waiting
+     */
+    List<Path> awaitChanges() throws InterruptedException {
+        Set<Path> changed = new TreeSet<>();
+        while (changed.isEmpty()) {
+            WatchKey key = watchService.take();
+            while (key != null) {
+                collect(key, changed);
+                key = watchService.poll(debounce.toMillis(), TimeUnit.MILLISECONDS);
+            }
+            changed.removeIf(file -> !Files.isRegularFile(file) || isOwnWrite(file));
+        }
+        return List.copyOf(changed);
+    }
+
+    /**
+     * Records that the formatter has just written {@code file}, so that the events the write
+     * raises are not taken for a change. If its attributes cannot be read the write is not
+     * recorded, and the file is formatted once more, with nothing left to change.
+     */
+    void recordWrite(Path file) {
+        try {
+            ownWrites.put(absolute(file), FileState.of(file));
+        } catch (IOException e) {
+            ownWrites.remove(absolute(file));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    private void watch(Path directory) {
+        try {
+            directories.put(directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY), directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void collect(WatchKey key, Set<Path> changed) {
+        Path directory = directories.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                // Events were dropped, so any file in the directory may have changed
+                relist(directory, changed);
+            } else {
+                collect(directory, (Path) event.context(), event.kind() == ENTRY_CREATE, changed);
+            }
+        }
+        if (!key.reset()) {
+            // The directory is gone
+            directories.remove(key);
+        }
+    }
+
+    private void collect(Path directory, Path name, boolean created, Set<Path> changed) {
+        Path inputFile = inputFiles.get(directory.resolve(name));
+        if (inputFile != null) {
+            changed.add(inputFile);
+            return;
+        }
+        Path enteredDirectory = enteredDirectories.get(directory);
+        if (enteredDirectory == null) {
+            return;
+        }
+        Path child = enteredDirectory.resolve(name);
+        if (Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+            if (created && discovery.enters(child)) {
+                // Files may have been created in it before it was watched
+                try (Stream<Path> files = discover(List.of(child))) {
+                    files.forEach(changed::add);
+                }
+            }
+        } else if (discovery.accepts(child)) {
+            changed.add(child);
+        }
+    }
+
+    private void relist(Path directory, Set<Path> changed) {
+        try (Stream<Path> children = Files.list(directory)) {
+            children.filter(Files::isRegularFile)
+                    .forEach(child -> collect(directory, child.getFileName(), false, changed));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private boolean isOwnWrite(Path file) {
+        FileState written = ownWrites.get(absolute(file));
+        if (written == null) {
+            return false;
+        }
+        try {
+            if (written.equals(FileState.of(file))) {
+                return true;
+            }
+        } catch (IOException e) {
+            // Judged by its content when formatted instead
+        }
+        ownWrites.remove(absolute(file));
+        return false;
+    }
+
+    private static Path absolute(Path path) {
+        return path.toAbsolutePath().normalize();
+    }
+
+    /**
+     * What tells one version of a file from another without reading it. The file key
+     * changes when a file is replaced by a move, as the formatter and many editors do.
+     */
+    private record FileState(Object fileKey, long size, FileTime lastModified) {
+
+        static FileState of(Path file) throws IOException {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            return new FileState(attributes.fileKey(), attributes.size(), attributes.lastModifiedTime());
+        }
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright 2025-present Nils Christian Haugen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tabletest.formatter.cli;
+
+import picocli.CommandLine;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Formats files for {@link DaemonClient}s over a Unix domain socket, so that short runs
+ * repeated on every editor save or commit skip JVM startup and reuse loaded classes,
+ * compiled code and parsed .editorconfig files.
+ *
+ * <p>Each connection carries one run: the client sends its working directory and its
+ * arguments, and the daemon runs the CLI on them as if started there, streaming standard
+ * output and error back as frames, followed by the exit code. Runs from several clients
+ * are served at once, sharing one {@link FileFormatter}.
+ *
+ * <p>The daemon stops once no run has been in progress for its idle timeout.
+ */
+final class FormatterDaemon implements AutoCloseable {
+
+    /**
+     * How long a daemon waits for another run before it stops.
+     */
+    static final long IDLE_TIMEOUT_MINUTES = 180;
+
+    // Frame types sent to the client. Output frames carry a length and UTF-8 bytes, the
+    // exit frame the exit code, and ends the run.
+    static final int EXIT = 0;
+    static final int STDOUT = 1;
+    static final int STDERR = 2;
+
+    private final Path socket;
+    private final ServerSocketChannel server;
+    private final FileFormatter fileFormatter;
+    private final Duration idleTimeout;
+    private final AtomicInteger activeRuns = new AtomicInteger();
+    private volatile long lastActivity = System.nanoTime();
+
+    private FormatterDaemon(
+            Path socket, ServerSocketChannel server, FileFormatter fileFormatter, Duration idleTimeout) {
+        this.socket = socket;
+        this.server = server;
+        this.fileFormatter = fileFormatter;
+        this.idleTimeout = idleTimeout;
+    }
+
+    /**
+     * Starts listening on {@code socket}. A socket file left behind by a daemon that did not
+     * stop cleanly is replaced; one that a daemon still listens on is not.
+     *
+     * @param socket        the socket to listen on; its directory is created private to the user
+     * @param fileFormatter the formatter shared by all runs
+     * @param idleTimeout   how long to wait for another run before stopping
+     * @throws IOException if the socket cannot be bound or another daemon listens on it
+     */
+    static FormatterDaemon bind(Path socket, FileFormatter fileFormatter, Duration idleTimeout) throws IOException {
+        createPrivateDirectory(socket.toAbsolutePath().getParent());
+        if (Files.exists(socket)) {
+            if (isListening(socket)) {
+                throw new IOException("A daemon is already listening on " + socket);
+            }
+            Files.delete(socket);
+        }
+        ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            server.bind(UnixDomainSocketAddress.of(socket));
+        } catch (IOException e) {
+            server.close();
+            throw new IOException("Cannot listen on " + socket + ": " + e.getMessage(), e);
+        }
+        return new FormatterDaemon(socket, server, fileFormatter, idleTimeout);
+    }
+
+    /**
+     * Serves runs until the daemon is idle for its timeout or {@link #close closed}, then
+     * waits for runs in progress and removes the socket.
+     */
+    void serve() throws IOException {
+        ExecutorService runs = Executors.newCachedThreadPool();
+        ScheduledExecutorService idleCheck = Executors.newSingleThreadScheduledExecutor();
+        long checkInterval = Math.max(1, Math.min(idleTimeout.toMillis(), TimeUnit.MINUTES.toMillis(1)));
+        idleCheck.scheduleWithFixedDelay(this::closeIfIdle, checkInterval, checkInterval, TimeUnit.MILLISECONDS);
+        try {
+            while (true) {
+                SocketChannel client;
+                try {
+                    client = server.accept();
+                } catch (ClosedChannelException e) {
+                    break;
+                }
+                activeRuns.incrementAndGet();
+                runs.execute(() -> handle(client));
+            }
+        } finally {
+            idleCheck.shutdownNow();
+            runs.shutdown();
+            awaitRuns(runs);
+            Files.deleteIfExists(socket);
+        }
+    }
+
+    /**
+     * Stops accepting runs; {@link #serve} returns once those in progress have finished.
+     */
+    @Override
+    public void close() throws IOException {
+        server.close();
+    }
+
+    private void closeIfIdle() {
+        if (activeRuns.get() == 0 && System.nanoTime() - lastActivity >= idleTimeout.toNanos()) {
+            try {
+                close();
+            } catch (IOException e) {
+                // Closing a server channel does not fail in practice; serve on if it does
+            }
+        }
+    }
+
+    private void handle(SocketChannel client) {
+        try (client) {
+            DataInputStream input = new DataInputStream(new BufferedInputStream(Channels.newInputStream(client)));
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(client)));
+            Path workingDirectory = Path.of(input.readUTF());
+            int count = input.readInt();
+            List<String> args = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                args.add(input.readUTF());
+            }
+
+            PrintWriter out = new PrintWriter(new FrameWriter(output, STDOUT), true);
+            PrintWriter err = new PrintWriter(new FrameWriter(output, STDERR), true);
+            int exitCode = run(workingDirectory, args, out, err);
+            out.flush();
+            err.flush();
+            synchronized (output) {
+                output.writeByte(EXIT);
+                output.writeInt(exitCode);
+                output.flush();
+            }
+        } catch (IOException e) {
+            // The client went away; nothing is left to report to
+        } finally {
+            lastActivity = System.nanoTime();
+            activeRuns.decrementAndGet();
+        }
+    }
+
+    private int run(Path workingDirectory, List<String> args, PrintWriter out, PrintWriter err) {
+        if (!workingDirectory.isAbsolute() || args.contains("--daemon")) {
+            err.println("Error: not a run a daemon can serve");
+            return 2;
+        }
+        CommandLine commandLine = new CommandLine(new TableTestFormatterCli(fileFormatter, workingDirectory));
+        commandLine.setOut(out);
+        commandLine.setErr(err);
+        return commandLine.execute(args.toArray(String[]::new));
+    }
+
+    private static void awaitRuns(ExecutorService runs) {
+        try {
+            while (!runs.awaitTermination(1, TimeUnit.MINUTES)) {
+                // A run is taking long; there is no cutting it short without leaving files half written
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static boolean isListening(Path socket) {
+        try {
+            SocketChannel.open(UnixDomainSocketAddress.of(socket)).close();
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static void createPrivateDirectory(Path directory) throws IOException {
+        if (Files.isDirectory(directory)) {
+            return;
+        }
+        try {
+            Files.createDirectories(
+                    directory, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+        } catch (UnsupportedOperationException e) {
+            // Non-POSIX filesystem (e.g. Windows): the directory keeps its default permissions
+            Files.createDirectories(directory);
+        }
+    }
+
+    /**
+     * Sends what is written to it as output frames of one type.
+     */
+    private static final class FrameWriter extends Writer {
+
+        private final DataOutputStream output;
+        private final int type;
+
+        FrameWriter(DataOutputStream output, int type) {
+            this.output = output;
+            this.type = type;
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int length) throws IOException {
+            if (length == 0) {
+                return;
+            }
+            byte[] bytes = new String(chars, offset, length).getBytes(StandardCharsets.UTF_8);
+            synchronized (output) {
+                output.writeByte(type);
+                output.writeInt(bytes.length);
+                output.write(bytes);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            synchronized (output) {
+                output.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
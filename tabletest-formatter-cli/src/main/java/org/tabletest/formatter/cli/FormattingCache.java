@@ -0,0 +1,380 @@
+/*
+ * Copyright 2025-present Nils Christian Haugen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tabletest.formatter.cli;
+
+import org.tabletest.formatter.config.Config;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers across runs which files are known to be formatted, so unchanged files need not
+ * be read again.
+ *
+ * <p>The index is an open-addressing hash table in one memory-mapped file, looked up in
+ * place: opening it reads a header, not the whole index. Each slot is keyed by a hash of
+ * the file's absolute path and holds the file's size, modification time and content hash
+ * when it was last found formatted, and the configuration it was formatted with. The
+ * header records the formatter version; an index written by another version is cleared.
+ *
+ * <p>A file whose size and modification time match is taken as formatted without reading
+ * it. Modification times are coarse on some file systems, so a file modified within
+ * {@link #RACY_WINDOW_MILLIS} of being recorded, or whose time differs, is read and its
+ * content hash compared instead, which still saves formatting it.
+ *
+ * <p>The index file is locked while open, so concurrent runs on one directory do not
+ * corrupt it: {@link #open} fails if another run holds it. Methods are thread-safe.
+ */
+final class FormattingCache implements AutoCloseable {
+
+    /**
+     * Default directory for the index, relative to the working directory.
+     */
+    static final String DEFAULT_DIRECTORY = ".tabletest-format-cache";
+
+    /**
+     * How close to being recorded a file may have been modified and still be trusted by its
+     * modification time; covers file systems with timestamps as coarse as two seconds.
+     */
+    static final long RACY_WINDOW_MILLIS = 2000;
+
+    private static final String INDEX_FILE = "index.bin";
+    private static final int MAGIC = 0x54544643; // "TTFC"
+    private static final int LAYOUT_VERSION = 1;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // Header: magic, layout version, formatter version hash, capacity, entry count
+    private static final int HEADER_SIZE = 32;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int LAYOUT_OFFSET = 4;
+    private static final int VERSION_OFFSET = 8;
+    private static final int CAPACITY_OFFSET = 16;
+    private static final int COUNT_OFFSET = 20;
+
+    // Slot: path hash (0 when free), size, modified time, recorded time, content hash, config, flags
+    private static final int SLOT_SIZE = 48;
+    private static final int PATH_HASH = 0;
+    private static final int SIZE = 8;
+    private static final int MODIFIED = 16;
+    private static final int RECORDED = 24;
+    private static final int CONTENT_HASH = 32;
+    private static final int CONFIG = 40;
+    private static final int FLAGS = 44;
+    private static final int FORMATTED = 1;
+
+    private final FileChannel channel;
+    private final FileLock lock;
+    private MappedByteBuffer index;
+    private int capacity;
+    private int count;
+
+    private FormattingCache(FileChannel channel, FileLock lock) {
+        this.channel = channel;
+        this.lock = lock;
+    }
+
+    /**
+     * Opens the index in {@code directory}, creating it if needed, or starting afresh if it
+     * was written by another formatter version or is damaged.
+     *
+     * @param directory        the cache directory
+     * @param formatterVersion the version of the running formatter
+     * @throws IOException if the index cannot be opened or another run is using it
+     */
+    static FormattingCache open(Path directory, String formatterVersion) throws IOException {
+        Files.createDirectories(directory);
+        Path gitIgnore = directory.resolve(".gitignore");
+        if (!Files.exists(gitIgnore)) {
+            // Keep the cache out of version control, wherever it is placed
+            Files.writeString(gitIgnore, "*\n");
+        }
+
+        FileChannel channel = FileChannel.open(
+                directory.resolve(INDEX_FILE),
+                StandardOpenOption.CREATE,
+                StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            FileLock lock = tryLock(channel);
+            if (lock == null) {
+                throw new IOException("Cache " + directory + " is in use by another run");
+            }
+            FormattingCache cache = new FormattingCache(channel, lock);
+            cache.load(hash(formatterVersion));
+            return cache;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static FileLock tryLock(FileChannel channel) throws IOException {
+        try {
+            return channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            // Held by another run in this JVM
+            return null;
+        }
+    }
+
+    private void load(long versionHash) throws IOException {
+        long length = channel.size();
+        if (length >= HEADER_SIZE) {
+            index = map(length);
+            int storedCapacity = index.getInt(CAPACITY_OFFSET);
+            boolean valid = index.getInt(MAGIC_OFFSET) == MAGIC
+                    && index.getInt(LAYOUT_OFFSET) == LAYOUT_VERSION
+                    && index.getLong(VERSION_OFFSET) == versionHash
+                    && Integer.bitCount(storedCapacity) == 1
+                    && length >= HEADER_SIZE + (long) storedCapacity * SLOT_SIZE;
+            if (valid) {
+                capacity = storedCapacity;
+                count = index.getInt(COUNT_OFFSET);
+                return;
+            }
+        }
+        reset(versionHash, INITIAL_CAPACITY);
+    }
+
+    /**
+     * Starts an empty table of {@code newCapacity} slots. The file is never truncated, as a
+     * mapped file cannot be on Windows: it is extended if too short, by writing its last byte,
+     * and otherwise keeps unused bytes past the table. The table is cleared explicitly.
+     */
+    private void reset(long versionHash, int newCapacity) throws IOException {
+        int length = HEADER_SIZE + newCapacity * SLOT_SIZE;
+        if (channel.size() < length) {
+            channel.write(ByteBuffer.allocate(1), length - 1);
+        }
+        index = map(length);
+        byte[] zeros = new byte[4096];
+        for (int at = 0; at < length; at += zeros.length) {
+            index.put(at, zeros, 0, Math.min(zeros.length, length - at));
+        }
+        index.putInt(MAGIC_OFFSET, MAGIC);
+        index.putInt(LAYOUT_OFFSET, LAYOUT_VERSION);
+        index.putLong(VERSION_OFFSET, versionHash);
+        index.putInt(CAPACITY_OFFSET, newCapacity);
+        index.putInt(COUNT_OFFSET, 0);
+        capacity = newCapacity;
+        count = 0;
+    }
+
+    private MappedByteBuffer map(long length) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    /**
+     * Whether the file is known to be formatted with this configuration, judging by its
+     * size and modification time alone.
+     */
+    synchronized boolean isFormatted(Path file, BasicFileAttributes attributes, Config config) {
+        int slot = find(pathHash(file));
+        if (slot < 0 || !isFormattedWith(slot, config)) {
+            return false;
+        }
+        long modified = attributes.lastModifiedTime().to(TimeUnit.MILLISECONDS);
+        return index.getLong(slot + SIZE) == attributes.size()
+                && index.getLong(slot + MODIFIED) == modified
+                && modified < index.getLong(slot + RECORDED) - RACY_WINDOW_MILLIS;
+    }
+
+    /**
+     * Whether the file was last recorded formatted, with this configuration, with exactly
+     * this content.
+     */
+    synchronized boolean isFormatted(Path file, String content, Config config) {
+        int slot = find(pathHash(file));
+        return slot >= 0 && isFormattedWith(slot, config) && index.getLong(slot + CONTENT_HASH) == hash(content);
+    }
+
+    /**
+     * Records that the file, as it is now on disk with this content, is formatted. Only for
+     * content just written or read: attributes read now must describe the same content.
+     *
+     * @throws IOException if the file's attributes cannot be read
+     */
+    void recordFormatted(Path file, String content, Config config) throws IOException {
+        recordFormatted(file, FileStamp.read(file), content, config);
+    }
+
+    /**
+     * Records that the file is formatted with this content, read no earlier than
+     * {@code stamp}. Taking the stamp before the content pairs them safely: if the file
+     * changes in between, its modification time no longer matches the recorded one, or falls
+     * within the racy window of the stamp's time.
+     */
+    void recordFormatted(Path file, FileStamp stamp, String content, Config config) throws IOException {
+        BasicFileAttributes attributes = stamp.attributes();
+        long contentHash = hash(content);
+        synchronized (this) {
+            int slot = insert(pathHash(file));
+            index.putLong(slot + SIZE, attributes.size());
+            index.putLong(slot + MODIFIED, attributes.lastModifiedTime().to(TimeUnit.MILLISECONDS));
+            index.putLong(slot + RECORDED, stamp.readMillis());
+            index.putLong(slot + CONTENT_HASH, contentHash);
+            index.putInt(slot + CONFIG, fingerprint(config));
+            index.putInt(slot + FLAGS, FORMATTED);
+        }
+    }
+
+    /**
+     * Records that the file is not known to be formatted.
+     */
+    synchronized void forget(Path file) {
+        int slot = find(pathHash(file));
+        if (slot >= 0) {
+            // The slot stays taken, so probe chains through it stay intact
+            index.putInt(slot + FLAGS, 0);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            index.force();
+            lock.release();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * A file's attributes and the time they were read at.
+     */
+    record FileStamp(BasicFileAttributes attributes, long readMillis) {
+
+        static FileStamp read(Path file) throws IOException {
+            long readMillis = System.currentTimeMillis();
+            return new FileStamp(Files.readAttributes(file, BasicFileAttributes.class), readMillis);
+        }
+    }
+
+    private boolean isFormattedWith(int slot, Config config) {
+        return (index.getInt(slot + FLAGS) & FORMATTED) != 0 && index.getInt(slot + CONFIG) == fingerprint(config);
+    }
+
+    /**
+     * Offset of the slot holding the key, or -1 if there is none.
+     */
+    private int find(long key) {
+        int mask = capacity - 1;
+        for (int i = (int) key & mask; ; i = (i + 1) & mask) {
+            int slot = HEADER_SIZE + i * SLOT_SIZE;
+            long stored = index.getLong(slot + PATH_HASH);
+            if (stored == key) {
+                return slot;
+            }
+            if (stored == 0) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Offset of the slot holding the key, taking a free one if there is none. Keeps the
+     * table at most half full, so probe chains stay short.
+     */
+    private int insert(long key) throws IOException {
+        int existing = find(key);
+        if (existing >= 0) {
+            return existing;
+        }
+        if (count + 1 > capacity / 2) {
+            grow();
+        }
+        int mask = capacity - 1;
+        int i = (int) key & mask;
+        while (index.getLong(HEADER_SIZE + i * SLOT_SIZE + PATH_HASH) != 0) {
+            i = (i + 1) & mask;
+        }
+        int slot = HEADER_SIZE + i * SLOT_SIZE;
+        index.putLong(slot + PATH_HASH, key);
+        index.putInt(COUNT_OFFSET, ++count);
+        return slot;
+    }
+
+    /**
+     * Doubles the table in place: copies the slots out, extends and remaps the file, clears
+     * it and reinserts them.
+     */
+    private void grow() throws IOException {
+        byte[] slots = new byte[capacity * SLOT_SIZE];
+        index.get(HEADER_SIZE, slots);
+        long versionHash = index.getLong(VERSION_OFFSET);
+        int oldCapacity = capacity;
+
+        reset(versionHash, oldCapacity * 2);
+        ByteBuffer oldSlots = ByteBuffer.wrap(slots).order(ByteOrder.LITTLE_ENDIAN);
+        int mask = capacity - 1;
+        for (int j = 0; j < oldCapacity; j++) {
+            int from = j * SLOT_SIZE;
+            long key = oldSlots.getLong(from + PATH_HASH);
+            if (key == 0) {
+                continue;
+            }
+            int i = (int) key & mask;
+            while (index.getLong(HEADER_SIZE + i * SLOT_SIZE + PATH_HASH) != 0) {
+                i = (i + 1) & mask;
+            }
+            index.put(HEADER_SIZE + i * SLOT_SIZE, slots, from, SLOT_SIZE);
+            count++;
+        }
+        index.putInt(COUNT_OFFSET, count);
+    }
+
+    private static long pathHash(Path file) {
+        long hash = hash(file.toAbsolutePath().normalize().toString());
+        // Zero marks a free slot
+        return hash == 0 ? 1 : hash;
+    }
+
+    /**
+     * The configuration as stored in a slot; stable across runs, unlike enum hash codes.
+     */
+    private static int fingerprint(Config config) {
+        return config.indentStyle().name().hashCode() * 31 + config.indentSize();
+    }
+
+    /**
+     * 64-bit FNV-1a over the UTF-8 bytes, with a final avalanche so that similar paths
+     * spread over the table.
+     */
+    static long hash(String text) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : text.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,444 @@
+/*
+ * Copyright 2025-present Nils Christian Haugen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tabletest.formatter.cli;
+
+import org.tabletest.formatter.config.Config;
+import org.tabletest.formatter.core.LineRange;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Reads, formats and writes back a list of files.
+ *
+ * <p>With one thread, each file goes through all three steps before the next one starts.
+ * With more, the steps run as a pipeline: reader threads load files, formatter threads
+ * format them and writer threads replace the originals, all at once on different files.
+ * A budget on in-flight bytes bounds memory: a file is only read once the heap it will
+ * take, estimated from its size, fits in what is left of the budget, and its share is
+ * returned once it has been written, so heap use stays flat however many files there are.
+ *
+ * <p>Outcomes are reported in the order of the file list, whichever file finishes first.
+ *
+ * <p>Given a {@link FormattingCache}, files it knows to be formatted are passed over
+ * unread, and files found or made formatted are recorded in it.
+ *
+ * <p>Given enabled {@link RunStatistics}, every phase of every file is timed into them.
+ */
+final class FormattingPipeline {
+
+    /**
+     * Default budget on the heap taken by files being read, formatted or written at once.
+     */
+    static final long DEFAULT_IN_FLIGHT_BYTES = 64L * 1024 * 1024;
+
+    /**
+     * Heap bytes a file in flight takes per byte on disk: its content as a string, at up to
+     * two bytes per character, plus the formatted copy of about the same size.
+     */
+    private static final int HEAP_BYTES_PER_FILE_BYTE = 4;
+
+    /**
+     * Budget charged for a file however small, for the buffers and bookkeeping around it.
+     */
+    private static final long MIN_FILE_COST = 4 * 1024;
+
+    /**
+     * The budget is kept in kilobytes, so that budgets over 2 GB fit a semaphore's permits.
+     */
+    private static final int BYTES_PER_PERMIT = 1024;
+
+    private final FileFormatter fileFormatter;
+    private final boolean checkMode;
+    private final int threads;
+    private final int budgetPermits;
+    // Null to format every table
+    private final Map<Path, List<LineRange>> changedLines;
+    // Null to format every file without consulting a cache
+    private final FormattingCache cache;
+    private final RunStatistics statistics;
+
+    FormattingPipeline(FileFormatter fileFormatter, boolean checkMode, int threads, long inFlightBytes) {
+        this(fileFormatter, checkMode, threads, inFlightBytes, null, null);
+    }
+
+    FormattingPipeline(
+            FileFormatter fileFormatter,
+            boolean checkMode,
+            int threads,
+            long inFlightBytes,
+            Map<Path, List<LineRange>> changedLines,
+            FormattingCache cache) {
+        this(fileFormatter, checkMode, threads, inFlightBytes, changedLines, cache, RunStatistics.disabled());
+    }
+
+    /**
+     * Creates a pipeline that only formats the tables touching the given lines of each file,
+     * for ratcheting, if {@code changedLines} is not null; files not in the map are left as
+     * they are. A non-null {@code cache} skips files known to be formatted; it only tracks
+     * whole files, so it cannot be combined with ratcheting. Each phase of each file is
+     * recorded into {@code statistics}.
+     */
+    FormattingPipeline(
+            FileFormatter fileFormatter,
+            boolean checkMode,
+            int threads,
+            long inFlightBytes,
+            Map<Path, List<LineRange>> changedLines,
+            FormattingCache cache,
+            RunStatistics statistics) {
+        if (changedLines != null && cache != null) {
+            throw new IllegalArgumentException("A formatting cache cannot be used when ratcheting");
+        }
+        this.fileFormatter = fileFormatter;
+        this.checkMode = checkMode;
+        this.threads = threads;
+        this.budgetPermits = toPermits(Math.max(inFlightBytes, MIN_FILE_COST));
+        this.changedLines = changedLines;
+        this.cache = cache;
+        this.statistics = statistics;
+    }
+
+    /**
+     * What happened to one file: its formatting result, if it got that far, and the error
+     * that stopped formatting or writing it, if any. The result carries no content, so
+     * outcomes waiting to be reported hold no memory to speak of.
+     */
+    record FileOutcome(Path file, FormattingResult result, Exception error) {}
+
+    /**
+     * A file read into memory, or with null content if it is streamed from disk instead or
+     * known from the cache to be formatted without reading it. With a cache, {@code config}
+     * is what the file is formatted with, {@code stamp} its attributes as read before the
+     * content and {@code upToDate} whether it is known to be formatted already.
+     */
+    private record LoadedFile(
+            Path file, String content, Config config, FormattingCache.FileStamp stamp, boolean upToDate) {}
+
+    /**
+     * A loaded file and the result of formatting it.
+     */
+    private record FormattedFile(LoadedFile loaded, FormattingResult result) {}
+
+    /**
+     * Processes every file and hands each outcome to {@code reporter}, in stream order,
+     * on the calling thread. Files are taken from the stream as the budget allows, so it
+     * can still be producing them while earlier ones are formatted.
+     */
+    void run(Stream<Path> files, Consumer<FileOutcome> reporter) {
+        Consumer<FileOutcome> recordingReporter = outcome -> {
+            statistics.recordFile(outcome.file());
+            reporter.accept(outcome);
+        };
+        Iterator<Path> it = files.iterator();
+        if (threads == 1) {
+            while (hasNext(it)) {
+                recordingReporter.accept(process(it.next()));
+            }
+            return;
+        }
+
+        ExecutorService readers = Executors.newFixedThreadPool(threads);
+        ExecutorService formatters = Executors.newFixedThreadPool(threads);
+        ExecutorService writers = Executors.newFixedThreadPool(threads);
+        try {
+            Semaphore budget = new Semaphore(budgetPermits);
+            Deque<CompletableFuture<FileOutcome>> pending = new ArrayDeque<>();
+            try {
+                while (hasNext(it)) {
+                    Path file = it.next();
+                    int permits = cost(file);
+                    acquire(budget, permits);
+                    pending.add(CompletableFuture.supplyAsync(() -> read(file), readers)
+                            .thenApplyAsync(this::format, formatters)
+                            .thenApplyAsync(this::write, writers)
+                            .exceptionally(e -> failed(file, e))
+                            .whenComplete((outcome, e) -> budget.release(permits)));
+
+                    // Report what has finished in order so far, without waiting
+                    while (!pending.isEmpty() && pending.peek().isDone()) {
+                        recordingReporter.accept(await(pending.poll()));
+                    }
+                }
+            } finally {
+                // Let files already started finish, also if the stream fails part way
+                while (!pending.isEmpty()) {
+                    recordingReporter.accept(await(pending.poll()));
+                }
+            }
+        } finally {
+            readers.shutdownNow();
+            formatters.shutdownNow();
+            writers.shutdownNow();
+        }
+    }
+
+    /**
+     * Whether the stream has another file, waiting for discovery to find it if need be; the
+     * time spent waiting counts as discovery.
+     */
+    private boolean hasNext(Iterator<Path> files) {
+        RunStatistics.Timer timer = statistics.start(RunStatistics.Phase.DISCOVERY, null);
+        boolean hasNext = files.hasNext();
+        timer.stop();
+        return hasNext;
+    }
+
+    private FileOutcome process(Path file) {
+        try {
+            return write(format(read(file)));
+        } catch (StageException e) {
+            return new FileOutcome(file, null, e.getCause());
+        } catch (UncheckedIOException e) {
+            return new FileOutcome(file, null, e);
+        }
+    }
+
+    private LoadedFile read(Path file) {
+        try {
+            if (fileFormatter.isStreamed(file)) {
+                return new LoadedFile(file, null, null, null, false);
+            }
+            if (cache == null) {
+                return new LoadedFile(file, readString(file), null, null, false);
+            }
+            RunStatistics.Timer timer = statistics.start(RunStatistics.Phase.CONFIG, file);
+            Config config = fileFormatter.configFor(file);
+            timer.stop();
+            FormattingCache.FileStamp stamp = FormattingCache.FileStamp.read(file);
+            if (cache.isFormatted(file, stamp.attributes(), config)) {
+                return new LoadedFile(file, null, config, stamp, true);
+            }
+            // Unknown, or its timestamp cannot be trusted: the content decides
+            String content = readString(file);
+            return new LoadedFile(file, content, config, stamp, cache.isFormatted(file, content, config));
+        } catch (IOException e) {
+            throw new StageException(e);
+        }
+    }
+
+    private String readString(Path file) throws IOException {
+        RunStatistics.Timer timer = statistics.start(RunStatistics.Phase.READ, file);
+        String content = Files.readString(file);
+        timer.stop();
+        statistics.recordRead(file);
+        return content;
+    }
+
+    private FormattedFile format(LoadedFile loaded) {
+        try {
+            if (loaded.upToDate()) {
+                return new FormattedFile(loaded, new FormattingResult(loaded.file(), false, loaded.content()));
+            }
+            if (loaded.content() == null) {
+                // Streamed from disk: reading and formatting are one step
+                RunStatistics.Timer timer = statistics.start(RunStatistics.Phase.FORMATTING, loaded.file());
+                FormattingResult result =
+                        checkMode ? fileFormatter.check(loaded.file()) : fileFormatter.format(loaded.file());
+                timer.stop();
+                statistics.recordRead(loaded.file());
+                return new FormattedFile(loaded, result);
+            }
+            List<LineRange> lines = changedLines == null ? null : changedLines.getOrDefault(loaded.file(), List.of());
+            return new FormattedFile(loaded, fileFormatter.format(loaded.file(), loaded.content(), lines, statistics));
+        } catch (IOException e) {
+            throw new StageException(e);
+        }
+    }
+
+    private FileOutcome write(FormattedFile formatted) {
+        FormattingResult result = formatted.result();
+        Path file = result.file();
+        // Keep only what reporting needs: the formatted content can be collected once written
+        FormattingResult reported = new FormattingResult(file, result.changed(), null);
+        try {
+            RunStatistics.Timer timer = statistics.start(RunStatistics.Phase.WRITE, file);
+            if (result.isStreamed()) {
+                // Only written when formatting, not checking
+                replaceWithFormattedFile(file, result.formattedFile());
+            } else if (!checkMode && result.changed()) {
+                writeFormattedContent(file, result.formattedContent());
+            }
+            timer.stop();
+            if (!checkMode && result.changed()) {
+                statistics.recordWritten(file);
+            }
+            updateCache(formatted.loaded(), result);
+            return new FileOutcome(file, reported, null);
+        } catch (IOException | UncheckedIOException e) {
+            return new FileOutcome(file, reported, e);
+        }
+    }
+
+    /**
+     * Records a file that is now formatted on disk, or forgets one that is not. A file
+     * found up to date by its content is recorded again, so its new timestamp is trusted
+     * next run. An unchanged file is recorded with the attributes read along with its
+     * content, since it may have been edited since; only a file this run has just written
+     * has its attributes read again.
+     */
+    private void updateCache(LoadedFile loaded, FormattingResult result) {
+        if (cache == null || loaded.content() == null) {
+            return;
+        }
+        try {
+            if (!result.changed()) {
+                cache.recordFormatted(loaded.file(), loaded.stamp(), loaded.content(), loaded.config());
+            } else if (!checkMode) {
+                cache.recordFormatted(loaded.file(), result.formattedContent(), loaded.config());
+            } else {
+                cache.forget(loaded.file());
+            }
+        } catch (IOException e) {
+            // The file is formatted all the same; it will just be checked again next run
+            cache.forget(loaded.file());
+        }
+    }
+
+    private void writeFormattedContent(Path file, String content) throws IOException {
+        Path tempFile = Files.createTempFile(file.toAbsolutePath().getParent(), ".tabletest-format-", ".tmp");
+        try {
+            // Encode through the writer's buffer rather than into one full-size byte array
+            try (Writer writer = Files.newBufferedWriter(tempFile)) {
+                writer.write(content);
+            }
+            copyPermissions(file, tempFile);
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.deleteIfExists(tempFile);
+            throw new IOException("Failed to write formatted content to " + file, e);
+        }
+    }
+
+    private void replaceWithFormattedFile(Path file, Path formattedFile) throws IOException {
+        try {
+            copyPermissions(file, formattedFile);
+            Files.move(formattedFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.deleteIfExists(formattedFile);
+            throw new IOException("Failed to write formatted content to " + file, e);
+        }
+    }
+
+    private void copyPermissions(Path source, Path target) throws IOException {
+        try {
+            Files.setPosixFilePermissions(target, Files.getPosixFilePermissions(source));
+        } catch (UnsupportedOperationException e) {
+            // Non-POSIX filesystem (e.g. Windows): temp file keeps its default permissions
+        }
+    }
+
+    /**
+     * Turns a read or format failure into the file's outcome. Anything other than an I/O
+     * error is a bug and propagates, as it would from the sequential loop.
+     */
+    private static FileOutcome failed(Path file, Throwable failure) {
+        Throwable cause = failure instanceof CompletionException ? failure.getCause() : failure;
+        if (cause instanceof StageException stageException) {
+            return new FileOutcome(file, null, stageException.getCause());
+        }
+        if (cause instanceof UncheckedIOException uncheckedIOException) {
+            return new FileOutcome(file, null, uncheckedIOException);
+        }
+        throw failure instanceof CompletionException completionException
+                ? completionException
+                : new CompletionException(failure);
+    }
+
+    /**
+     * The share of the budget a file takes: the heap its size needs in flight, at least the
+     * per-file minimum, at most the whole budget so that a file larger than the budget can
+     * still go through on its own.
+     */
+    private int cost(Path file) {
+        long size;
+        try {
+            size = Files.size(file);
+        } catch (IOException e) {
+            // Reading will fail and report it; charge the minimum meanwhile
+            size = 0;
+        }
+        long heapBytes =
+                size > Long.MAX_VALUE / HEAP_BYTES_PER_FILE_BYTE ? Long.MAX_VALUE : size * HEAP_BYTES_PER_FILE_BYTE;
+        return Math.min(toPermits(Math.max(heapBytes, MIN_FILE_COST)), budgetPermits);
+    }
+
+    private static int toPermits(long bytes) {
+        return (int) Math.min(Integer.MAX_VALUE, (bytes + BYTES_PER_PERMIT - 1) / BYTES_PER_PERMIT);
+    }
+
+    private static void acquire(Semaphore budget, int permits) {
+        try {
+            budget.acquire(permits);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while formatting files");
+        }
+    }
+
+    private static FileOutcome await(CompletableFuture<FileOutcome> outcome) {
+        try {
+            return outcome.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while formatting files");
+        } catch (ExecutionException e) {
+            // Unexpected failure in a stage: surface it as the sequential loop would
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Carries an I/O error out of a read or format step, which cannot throw checked exceptions.
+     */
+    private static final class StageException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        StageException(IOException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized IOException getCause() {
+            return (IOException) super.getCause();
+        }
+    }
+}
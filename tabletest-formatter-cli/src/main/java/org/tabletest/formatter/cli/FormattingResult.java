@@ -20,8 +20,26 @@ import java.nio.file.Path;
 /**
  * Result of formatting a single file.
  *
+ * <p>Large standalone table files are formatted straight to a temporary file next to the
+ * original instead of into memory. For those, {@code formattedContent} is null and
+ * {@code formattedFile} holds the formatted table if it changed and was written; the
+ * caller moves it into place or deletes it.
+ *
  * @param file             the file that was formatted
  * @param changed          whether the file content was changed by formatting
- * @param formattedContent the formatted content
+ * @param formattedContent the formatted content, or null if it was written to {@code formattedFile}
+ * @param formattedFile    the temporary file holding the formatted content, or null if held in memory or not written
  */
-public record FormattingResult(Path file, boolean changed, String formattedContent) {}
+public record FormattingResult(Path file, boolean changed, String formattedContent, Path formattedFile) {
+
+    public FormattingResult(Path file, boolean changed, String formattedContent) {
+        this(file, changed, formattedContent, null);
+    }
+
+    /**
+     * Whether the formatted content was written to {@link #formattedFile()} instead of held in memory.
+     */
+    public boolean isStreamed() {
+        return formattedFile != null;
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2025-present Nils Christian Haugen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tabletest.formatter.cli;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * The rules of one {@code .gitignore} file, compiled once when the file is read.
+ *
+ * <p>Supports the gitignore pattern syntax: comments, {@code !} negation, trailing
+ * {@code /} for directories only, patterns anchored by a {@code /} against the file's own
+ * directory, {@code *}, {@code ?}, character classes and {@code **}. Patterns without
+ * wildcards are compared as plain strings. As in git, the last rule that matches a path
+ * decides whether it is ignored.
+ */
+final class GitIgnore {
+
+    /**
+     * What a set of rules says about a path.
+     */
+    enum Verdict {
+        IGNORED,
+        NOT_IGNORED,
+        NO_MATCH
+    }
+
+    private final List<Rule> rules;
+
+    private GitIgnore(List<Rule> rules) {
+        this.rules = rules;
+    }
+
+    /**
+     * Compiles the lines of a {@code .gitignore} file.
+     */
+    static GitIgnore parse(List<String> lines) {
+        List<Rule> rules = new ArrayList<>();
+        for (String line : lines) {
+            Rule rule = Rule.parse(line);
+            if (rule != null) {
+                rules.add(rule);
+            }
+        }
+        return new GitIgnore(List.copyOf(rules));
+    }
+
+    boolean isEmpty() {
+        return rules.isEmpty();
+    }
+
+    /**
+     * Matches a path against the rules.
+     *
+     * @param relativePath the path relative to the directory of the {@code .gitignore}
+     *                     file, with {@code /} separators
+     * @param name         the last segment of the path
+     * @param directory    whether the path is a directory
+     */
+    Verdict match(String relativePath, String name, boolean directory) {
+        for (int i = rules.size() - 1; i >= 0; i--) {
+            Rule rule = rules.get(i);
+            if (rule.matches(relativePath, name, directory)) {
+                return rule.negated() ? Verdict.NOT_IGNORED : Verdict.IGNORED;
+            }
+        }
+        return Verdict.NO_MATCH;
+    }
+
+    /**
+     * One pattern line. Unanchored patterns match the name only, anchored ones the whole
+     * relative path; {@code literal} is set instead of {@code pattern} when there is no
+     * wildcard to match.
+     */
+    private record Rule(String literal, Pattern pattern, boolean anchored, boolean directoryOnly, boolean negated) {
+
+        static Rule parse(String line) {
+            String text = trimTrailingSpaces(line);
+            if (text.isEmpty() || text.startsWith("#")) {
+                return null;
+            }
+            boolean negated = text.startsWith("!");
+            if (negated) {
+                text = text.substring(1);
+            } else if (text.startsWith("\\#") || text.startsWith("\\!")) {
+                text = text.substring(1);
+            }
+            boolean directoryOnly = text.endsWith("/");
+            if (directoryOnly) {
+                text = text.substring(0, text.length() - 1);
+            }
+            boolean anchored = text.contains("/");
+            if (text.startsWith("/")) {
+                text = text.substring(1);
+            }
+            if (text.isEmpty()) {
+                return null;
+            }
+            if (isLiteral(text)) {
+                return new Rule(text, null, anchored, directoryOnly, negated);
+            }
+            return new Rule(null, Pattern.compile(toRegex(text)), anchored, directoryOnly, negated);
+        }
+
+        boolean matches(String relativePath, String name, boolean directory) {
+            if (directoryOnly && !directory) {
+                return false;
+            }
+            String subject = anchored ? relativePath : name;
+            return literal != null
+                    ? literal.equals(subject)
+                    : pattern.matcher(subject).matches();
+        }
+
+        /**
+         * Trailing spaces are ignored unless escaped with a backslash.
+         */
+        private static String trimTrailingSpaces(String line) {
+            int end = line.length();
+            while (end > 0 && line.charAt(end - 1) == ' ' && !(end > 1 && line.charAt(end - 2) == '\\')) {
+                end--;
+            }
+            return line.substring(0, end);
+        }
+
+        private static boolean isLiteral(String text) {
+            for (int i = 0; i < text.length(); i++) {
+                if ("*?[\\".indexOf(text.charAt(i)) >= 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static String toRegex(String glob) {
+            StringBuilder regex = new StringBuilder();
+            int length = glob.length();
+            int i = 0;
+            while (i < length) {
+                char c = glob.charAt(i);
+                if (c == '*' && i + 1 < length && glob.charAt(i + 1) == '*' && (i == 0 || glob.charAt(i - 1) == '/')) {
+                    if (i + 2 == length) {
+                        // Trailing "**": everything inside
+                        regex.append(".*");
+                        i += 2;
+                        continue;
+                    }
+                    if (glob.charAt(i + 2) == '/') {
+                        // Leading or middle "**/": zero or more directories
+                        regex.append("(?:.*/)?");
+                        i += 3;
+                        continue;
+                    }
+                }
+                switch (c) {
+                    case '*' -> regex.append("[^/]*");
+                    case '?' -> regex.append("[^/]");
+                    case '[' -> i = appendCharacterClass(glob, i, regex) - 1;
+                    case '\\' -> {
+                        if (i + 1 < length) {
+                            i++;
+                        }
+                        regex.append(Pattern.quote(String.valueOf(glob.charAt(i))));
+                    }
+                    default -> regex.append(Pattern.quote(String.valueOf(c)));
+                }
+                i++;
+            }
+            return regex.toString();
+        }
+
+        /**
+         * Appends the character class starting at {@code start} and returns the index after
+         * it, or treats an unclosed bracket as a literal.
+         */
+        private static int appendCharacterClass(String glob, int start, StringBuilder regex) {
+            int i = start + 1;
+            StringBuilder characterClass = new StringBuilder("[");
+            if (i < glob.length() && (glob.charAt(i) == '!' || glob.charAt(i) == '^')) {
+                characterClass.append('^');
+                i++;
+            }
+            boolean first = true;
+            while (i < glob.length() && (glob.charAt(i) != ']' || first)) {
+                char c = glob.charAt(i);
+                if (c == '\\' && i + 1 < glob.length()) {
+                    c = glob.charAt(++i);
+                }
+                if (c == '\\' || c == '[' || c == ']' || c == '^' || c == '&') {
+                    characterClass.append('\\');
+                }
+                characterClass.append(c);
+                first = false;
+                i++;
+            }
+            if (i >= glob.length()) {
+                regex.append(Pattern.quote("["));
+                return start + 1;
+            }
+            regex.append(characterClass).append(']');
+            return i + 1;
+        }
+    }
+}
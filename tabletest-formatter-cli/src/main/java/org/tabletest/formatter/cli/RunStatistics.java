@@ -0,0 +1,477 @@
+/*
+ * Copyright 2025-present Nils Christian Haugen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tabletest.formatter.cli;
+
+import org.tabletest.formatter.core.TableListener;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures where a run spends its time, for {@code --stats}: wall and CPU time per phase,
+ * bytes read and written, counts of files, tables, rows and cells, throughput, peak heap,
+ * and the slowest files and tables.
+ *
+ * <p>Safe to record into from the pipeline's threads at once. Phase times are summed over
+ * those threads, so with more than one they can add up to more than the run's wall time.
+ * CPU time per phase is the CPU time of the thread doing the work; the run's CPU time is
+ * the whole process's, JIT compilation and garbage collection included.
+ *
+ * <p>A {@linkplain #disabled() disabled} instance records nothing and costs next to nothing,
+ * so callers need not check whether statistics are wanted.
+ */
+final class RunStatistics {
+
+    /**
+     * Number of slowest files and tables reported.
+     */
+    static final int DEFAULT_SLOWEST = 10;
+
+    /**
+     * The steps a file goes through; discovery is the time spent waiting for the next file.
+     */
+    enum Phase {
+        DISCOVERY,
+        CONFIG,
+        READ,
+        EXTRACTION,
+        FORMATTING,
+        WRITE;
+
+        String label() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /**
+     * How the statistics are printed.
+     */
+    enum Format {
+        TEXT,
+        JSON
+    }
+
+    private static final RunStatistics DISABLED = new RunStatistics();
+    private static final Timer DISABLED_TIMER = new Timer(DISABLED, Phase.DISCOVERY, null, 0, 0);
+
+    private final boolean enabled;
+    private final ThreadMXBean threads;
+    private final boolean threadCpuTime;
+    private final LongAdder[] wallNanos = new LongAdder[Phase.values().length];
+    private final LongAdder[] cpuNanos = new LongAdder[Phase.values().length];
+    private final LongAdder files = new LongAdder();
+    private final LongAdder tables = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder cells = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+    // Time so far of files still going through the pipeline
+    private final Map<Path, Long> fileNanos = new ConcurrentHashMap<>();
+    private final Slowest<FileTime> slowestFiles;
+    private final Slowest<TableTime> slowestTables;
+    private final long startNanos;
+    private final Duration startCpu;
+    private long elapsedNanos = -1;
+    private Duration elapsedCpu;
+    private long peakHeapBytes;
+
+    private RunStatistics() {
+        this.enabled = false;
+        this.threads = null;
+        this.threadCpuTime = false;
+        this.slowestFiles = null;
+        this.slowestTables = null;
+        this.startNanos = 0;
+        this.startCpu = null;
+    }
+
+    private RunStatistics(int slowest) {
+        this.enabled = true;
+        this.threads = ManagementFactory.getThreadMXBean();
+        this.threadCpuTime = threads.isCurrentThreadCpuTimeSupported() && threads.isThreadCpuTimeEnabled();
+        for (int i = 0; i < wallNanos.length; i++) {
+            wallNanos[i] = new LongAdder();
+            cpuNanos[i] = new LongAdder();
+        }
+        this.slowestFiles = new Slowest<>(slowest);
+        this.slowestTables = new Slowest<>(slowest);
+        ManagementFactory.getMemoryPoolMXBeans().forEach(MemoryPoolMXBean::resetPeakUsage);
+        this.startCpu = processCpuTime();
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Starts measuring a run, reporting the {@code slowest} slowest files and tables.
+     */
+    static RunStatistics start(int slowest) {
+        return new RunStatistics(slowest);
+    }
+
+    /**
+     * An instance that records nothing.
+     */
+    static RunStatistics disabled() {
+        return DISABLED;
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts timing a phase of work on {@code file}, or on no file in particular if null,
+     * on the calling thread. The time is recorded when the timer is stopped.
+     */
+    Timer start(Phase phase, Path file) {
+        return enabled ? new Timer(this, phase, file, System.nanoTime(), threadCpuTime()) : DISABLED_TIMER;
+    }
+
+    /**
+     * Counts the bytes of a file just read.
+     */
+    void recordRead(Path file) throws IOException {
+        if (enabled) {
+            bytesRead.add(Files.size(file));
+        }
+    }
+
+    /**
+     * Counts the bytes of a file just written.
+     */
+    void recordWritten(Path file) throws IOException {
+        if (enabled) {
+            bytesWritten.add(Files.size(file));
+        }
+    }
+
+    /**
+     * A listener for formatting the tables of {@code file} on the calling thread, recording
+     * each table's time and the rows and cells the formatter parsed in it.
+     */
+    TableListener tableListener(Path file) {
+        return enabled ? new TableRecorder(this, file) : TableListener.NONE;
+    }
+
+    /**
+     * Records that a file has been through every phase it needed.
+     */
+    void recordFile(Path file) {
+        if (!enabled) {
+            return;
+        }
+        files.increment();
+        Long nanos = fileNanos.remove(file);
+        slowestFiles.offer(new FileTime(file, nanos == null ? 0 : nanos));
+    }
+
+    /**
+     * Ends the run: takes its wall and CPU time and the peak heap use since it started.
+     */
+    void finish() {
+        elapsedNanos = System.nanoTime() - startNanos;
+        Duration endCpu = processCpuTime();
+        elapsedCpu = startCpu == null || endCpu == null ? null : endCpu.minus(startCpu);
+        peakHeapBytes = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .mapToLong(pool -> pool.getPeakUsage().getUsed())
+                .sum();
+    }
+
+    /**
+     * The statistics of the {@linkplain #finish() finished} run, as lines of text for people.
+     */
+    String toText() {
+        StringBuilder out = new StringBuilder();
+        out.append("Statistics:\n");
+        out.append(String.format(
+                Locale.ROOT,
+                "  Wall time %s, CPU time %s%n",
+                millis(elapsedNanos),
+                elapsedCpu == null ? "unavailable" : millis(elapsedCpu.toNanos())));
+        out.append(String.format(Locale.ROOT, "  %-12s %12s %12s%n", "Phase", "Wall", "CPU"));
+        for (Phase phase : Phase.values()) {
+            out.append(String.format(
+                    Locale.ROOT,
+                    "  %-12s %12s %12s%n",
+                    phase.label(),
+                    millis(wallNanos[phase.ordinal()].sum()),
+                    threadCpuTime ? millis(cpuNanos[phase.ordinal()].sum()) : "unavailable"));
+        }
+        out.append(String.format(
+                Locale.ROOT,
+                "  %d files, %d tables, %d rows, %d cells%n",
+                files.sum(),
+                tables.sum(),
+                rows.sum(),
+                cells.sum()));
+        out.append(String.format(
+                Locale.ROOT,
+                "  Read %s, wrote %s, %s/s, %.1f files/s%n",
+                megabytes(bytesRead.sum()),
+                megabytes(bytesWritten.sum()),
+                megabytes(bytesPerSecond()),
+                filesPerSecond()));
+        out.append("  Peak heap ").append(megabytes(peakHeapBytes)).append('\n');
+        out.append("  Slowest files:\n");
+        for (FileTime file : slowestFiles.sorted()) {
+            out.append(String.format(Locale.ROOT, "  %12s  %s%n", millis(file.nanos()), file.file()));
+        }
+        out.append("  Slowest tables:\n");
+        for (TableTime table : slowestTables.sorted()) {
+            out.append(String.format(
+                    Locale.ROOT,
+                    "  %12s  %s at offset %d (%d rows, %d cells)%n",
+                    millis(table.nanos()),
+                    table.file(),
+                    table.offset(),
+                    table.rows(),
+                    table.cells()));
+        }
+        return out.toString();
+    }
+
+    /**
+     * The statistics of the {@linkplain #finish() finished} run, as one line of JSON for
+     * dashboards. Times are in nanoseconds and sizes in bytes; a time the JVM cannot measure
+     * is null.
+     */
+    String toJson() {
+        StringBuilder out = new StringBuilder();
+        out.append("{\"wallNanos\":").append(elapsedNanos);
+        out.append(",\"cpuNanos\":").append(elapsedCpu == null ? "null" : Long.toString(elapsedCpu.toNanos()));
+        out.append(",\"phases\":{");
+        for (Phase phase : Phase.values()) {
+            if (phase.ordinal() > 0) {
+                out.append(',');
+            }
+            out.append('"').append(phase.label()).append("\":{\"wallNanos\":");
+            out.append(wallNanos[phase.ordinal()].sum());
+            out.append(",\"cpuNanos\":");
+            out.append(threadCpuTime ? Long.toString(cpuNanos[phase.ordinal()].sum()) : "null");
+            out.append('}');
+        }
+        out.append('}');
+        out.append(",\"files\":").append(files.sum());
+        out.append(",\"tables\":").append(tables.sum());
+        out.append(",\"rows\":").append(rows.sum());
+        out.append(",\"cells\":").append(cells.sum());
+        out.append(",\"bytesRead\":").append(bytesRead.sum());
+        out.append(",\"bytesWritten\":").append(bytesWritten.sum());
+        out.append(",\"bytesPerSecond\":").append(bytesPerSecond());
+        out.append(",\"filesPerSecond\":").append(String.format(Locale.ROOT, "%.1f", filesPerSecond()));
+        out.append(",\"peakHeapBytes\":").append(peakHeapBytes);
+        out.append(",\"slowestFiles\":[");
+        List<FileTime> fileTimes = slowestFiles.sorted();
+        for (int i = 0; i < fileTimes.size(); i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append("{\"file\":");
+            appendJsonString(out, fileTimes.get(i).file().toString());
+            out.append(",\"nanos\":").append(fileTimes.get(i).nanos()).append('}');
+        }
+        out.append("],\"slowestTables\":[");
+        List<TableTime> tableTimes = slowestTables.sorted();
+        for (int i = 0; i < tableTimes.size(); i++) {
+            TableTime table = tableTimes.get(i);
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append("{\"file\":");
+            appendJsonString(out, table.file().toString());
+            out.append(",\"offset\":").append(table.offset());
+            out.append(",\"nanos\":").append(table.nanos());
+            out.append(",\"rows\":").append(table.rows());
+            out.append(",\"cells\":").append(table.cells()).append('}');
+        }
+        out.append("]}");
+        return out.toString();
+    }
+
+    private void record(Phase phase, Path file, long wall, long cpu) {
+        wallNanos[phase.ordinal()].add(wall);
+        cpuNanos[phase.ordinal()].add(cpu);
+        if (file != null) {
+            fileNanos.merge(file, wall, Long::sum);
+        }
+    }
+
+    private long threadCpuTime() {
+        return threadCpuTime ? threads.getCurrentThreadCpuTime() : 0;
+    }
+
+    private static Duration processCpuTime() {
+        return ProcessHandle.current().info().totalCpuDuration().orElse(null);
+    }
+
+    private long bytesPerSecond() {
+        return elapsedNanos > 0 ? (long) (bytesRead.sum() * 1e9 / elapsedNanos) : 0;
+    }
+
+    private double filesPerSecond() {
+        return elapsedNanos > 0 ? files.sum() * 1e9 / elapsedNanos : 0;
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.1f ms", nanos / 1e6);
+    }
+
+    private static String megabytes(long bytes) {
+        return String.format(Locale.ROOT, "%.1f MB", bytes / (1024.0 * 1024.0));
+    }
+
+    private static void appendJsonString(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c < 0x20) {
+                out.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+            } else {
+                out.append(c);
+            }
+        }
+        out.append('"');
+    }
+
+    /**
+     * Times one phase of work on the thread that started it.
+     */
+    static final class Timer {
+
+        private final RunStatistics statistics;
+        private final Phase phase;
+        private final Path file;
+        private final long startNanos;
+        private final long startCpuNanos;
+
+        private Timer(RunStatistics statistics, Phase phase, Path file, long startNanos, long startCpuNanos) {
+            this.statistics = statistics;
+            this.phase = phase;
+            this.file = file;
+            this.startNanos = startNanos;
+            this.startCpuNanos = startCpuNanos;
+        }
+
+        /**
+         * Records the time since the timer started, and returns its wall time in nanoseconds.
+         */
+        long stop() {
+            if (!statistics.enabled) {
+                return 0;
+            }
+            long wall = System.nanoTime() - startNanos;
+            statistics.record(phase, file, wall, statistics.threadCpuTime() - startCpuNanos);
+            return wall;
+        }
+    }
+
+    /**
+     * Records the tables of one file as they are formatted. A table that cannot be parsed
+     * counts, without rows or cells.
+     */
+    private static final class TableRecorder implements TableListener {
+
+        private final RunStatistics statistics;
+        private final Path file;
+        private int offset;
+        private long startNanos;
+        private int rows;
+        private int cells;
+
+        TableRecorder(RunStatistics statistics, Path file) {
+            this.statistics = statistics;
+            this.file = file;
+        }
+
+        @Override
+        public void tableStarted(int offset) {
+            this.offset = offset;
+            this.rows = 0;
+            this.cells = 0;
+            this.startNanos = System.nanoTime();
+        }
+
+        @Override
+        public void tableParsed(int rows, int cells) {
+            this.rows = rows;
+            this.cells = cells;
+        }
+
+        @Override
+        public void tableFinished() {
+            long nanos = System.nanoTime() - startNanos;
+            statistics.tables.increment();
+            statistics.rows.add(rows);
+            statistics.cells.add(cells);
+            statistics.slowestTables.offer(new TableTime(file, offset, nanos, rows, cells));
+        }
+    }
+
+    private interface Timed {
+        long nanos();
+    }
+
+    private record FileTime(Path file, long nanos) implements Timed {}
+
+    private record TableTime(Path file, int offset, long nanos, int rows, int cells) implements Timed {}
+
+    /**
+     * The slowest of the items offered, up to a limit, kept in a heap with the fastest on top.
+     */
+    private static final class Slowest<T extends Timed> {
+
+        private final int limit;
+        private final PriorityQueue<T> heap = new PriorityQueue<>(Comparator.comparingLong(Timed::nanos));
+
+        Slowest(int limit) {
+            this.limit = limit;
+        }
+
+        synchronized void offer(T item) {
+            if (limit <= 0) {
+                return;
+            }
+            if (heap.size() < limit) {
+                heap.add(item);
+            } else if (item.nanos() > heap.peek().nanos()) {
+                heap.poll();
+                heap.add(item);
+            }
+        }
+
+        synchronized List<T> sorted() {
+            List<T> items = new ArrayList<>(heap);
+            items.sort(Comparator.comparingLong(Timed::nanos).reversed());
+            return items;
+        }
+    }
+}
@@ -15,18 +15,39 @@
  */
 package org.tabletest.formatter.cli;
 
+import org.tabletest.formatter.config.EditorConfigProvider;
+import org.tabletest.formatter.core.LineRange;
 import picocli.CommandLine;
+import picocli.CommandLine.ArgGroup;
 import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.ArgSpec;
+import picocli.CommandLine.Model.CommandSpec;
 import picocli.CommandLine.Option;
 import picocli.CommandLine.Parameters;
+import picocli.CommandLine.Spec;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
 import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.Stack;
 import java.util.concurrent.Callable;
+import java.util.function.Consumer;
+import java.util.regex.PatternSyntaxException;
+import java.util.stream.Stream;
 
 /**
  * Command-line interface for formatting TableTest tables.
@@ -54,7 +75,7 @@ import java.util.concurrent.Callable;
  * <ul>
  *   <li>0: Success (check: no changes needed, apply: formatting succeeded)</li>
  *   <li>1: Failure (check: changes needed OR errors, apply: errors)</li>
- *   <li>2: Invalid usage (handled by picocli)</li>
+ *   <li>2: Invalid usage (handled by picocli, or an invalid glob)</li>
  * </ul>
  */
 @Command(
@@ -64,8 +85,21 @@ import java.util.concurrent.Callable;
         versionProvider = VersionProvider.class)
 public class TableTestFormatterCli implements Callable<Integer> {
 
-    @Parameters(paramLabel = "PATH", arity = "1..*", description = "Files or directories to format")
-    private List<Path> paths;
+    @Parameters(
+            paramLabel = "PATH",
+            arity = "0..*",
+            description = "Files or directories to format; with --since, --staged or --files-from,"
+                    + " limits the changed files to those under these paths")
+    private List<Path> paths = new ArrayList<>();
+
+    @ArgGroup(exclusive = true)
+    private ChangeSelection changeSelection;
+
+    @Spec
+    private CommandSpec spec;
+
+    // Lines changed per file with --ratchet-from, null to format every table
+    private Map<Path, List<LineRange>> ratchetLines;
 
     @Option(
             names = {"-c", "--check"},
@@ -77,109 +111,537 @@ public class TableTestFormatterCli implements Callable<Integer> {
             description = "Print detailed output for each file")
     private boolean verbose = false;
 
+    @Option(
+            names = "--threads",
+            paramLabel = "N|auto",
+            defaultValue = "1",
+            converter = ThreadCountConverter.class,
+            description = "Number of files to format concurrently, or 'auto' for one per available CPU"
+                    + " (default: ${DEFAULT-VALUE})")
+    private int threads = 1;
+
+    @Option(
+            names = "--max-in-flight-bytes",
+            paramLabel = "SIZE",
+            defaultValue = "64M",
+            converter = ByteSizeConverter.class,
+            description = "Upper bound on the heap taken by files being read, formatted and written at once"
+                    + " with --threads, estimated at four times their size on disk; accepts K, M and G suffixes"
+                    + " (default: ${DEFAULT-VALUE})")
+    private long maxInFlightBytes = FormattingPipeline.DEFAULT_IN_FLIGHT_BYTES;
+
+    @Option(
+            names = "--prune-dirs",
+            paramLabel = "NAMES",
+            split = ",",
+            defaultValue = ".git,target,build,node_modules,.gradle",
+            description = "Comma-separated names of directories not to descend into, target and build only"
+                    + " next to a pom.xml or build.gradle(.kts); pass an empty value to descend into all"
+                    + " (default: ${DEFAULT-VALUE})")
+    private Set<String> prunedDirectories = FileDiscovery.DEFAULT_PRUNED_DIRECTORIES;
+
+    @Option(names = "--include", paramLabel = "GLOB", description = "Only format files matching this glob; repeatable")
+    private List<String> includeGlobs = new ArrayList<>();
+
+    @Option(
+            names = "--exclude",
+            paramLabel = "GLOB",
+            description = "Skip files and directories matching this glob; repeatable")
+    private List<String> excludeGlobs = new ArrayList<>();
+
+    @Option(names = "--no-gitignore", description = "Also format files ignored by .gitignore files")
+    private boolean noGitIgnore = false;
+
+    @Option(
+            names = "--stdin-filepath",
+            paramLabel = "PATH",
+            description = "Format standard input as the file at PATH, which need not exist, and write the"
+                    + " result to standard output; PATH selects the file type and .editorconfig settings")
+    private Path stdinFilepath;
+
+    @Option(
+            names = "--watch",
+            description = "After formatting, keep watching the paths and format files again as they are"
+                    + " saved, until interrupted")
+    private boolean watch = false;
+
+    @Option(
+            names = "--daemon",
+            description = "Run as a daemon that serves --use-daemon clients over a Unix domain socket,"
+                    + " until idle for " + FormatterDaemon.IDLE_TIMEOUT_MINUTES + " minutes")
+    private boolean daemon = false;
+
+    // Acted on in main() before parsing; declared so that formatting in-process accepts it
+    @Option(
+            names = "--use-daemon",
+            description = "Have a daemon format the files, starting one if none is running; formats"
+                    + " in this process if no daemon can be reached")
+    private boolean useDaemon = false;
+
+    @Option(
+            names = "--daemon-socket",
+            paramLabel = "SOCKET",
+            description = "Socket the daemon listens on (default: a per-user, per-version socket in"
+                    + " $XDG_RUNTIME_DIR or the temporary directory)")
+    private Path daemonSocket;
+
+    @Option(
+            names = "--checkpoint",
+            description = "Warm up on a bundled training corpus, then write a CRaC checkpoint to the"
+                    + " directory given by -XX:CRaCCheckpointTo, for later runs to restore from")
+    private boolean checkpoint = false;
+
+    @Option(
+            names = "--stats",
+            arity = "0..1",
+            paramLabel = "FORMAT",
+            preprocessor = StatisticsFormatPreprocessor.class,
+            description = "Print where the run spent its time to standard error: wall and CPU time per phase,"
+                    + " sizes, counts, throughput, peak heap and the slowest files and tables;"
+                    + " FORMAT is 'text' (default) or 'json'")
+    private RunStatistics.Format statisticsFormat;
+
+    @Option(
+            names = "--cache",
+            description = "Remember files found formatted and skip them next run while unchanged;"
+                    + " not used with --ratchet-from")
+    private boolean useCache = false;
+
+    @Option(
+            names = "--cache-dir",
+            paramLabel = "DIR",
+            defaultValue = FormattingCache.DEFAULT_DIRECTORY,
+            description = "Directory for the --cache index (default: ${DEFAULT-VALUE})")
+    private Path cacheDirectory = Path.of(FormattingCache.DEFAULT_DIRECTORY);
+
+    // Null when discovery is configured from the command line
     private final FileDiscovery fileDiscovery;
     private final FileFormatter fileFormatter;
+    // For --watch and --daemon, which outlive .editorconfig edits
+    private final FileFormatter longRunningFormatter;
+    // Relative paths are resolved against this; empty for the process's own directory
+    private final Path workingDirectory;
 
     public TableTestFormatterCli() {
-        this.fileDiscovery = new FileDiscovery();
-        this.fileFormatter = new FileFormatter();
+        this(
+                null,
+                new FileFormatter(),
+                // A lambda, so that ec4j is only loaded once a long-running formatter needs config
+                new FileFormatter(() -> EditorConfigProvider.revalidating(), FileFormatter.DEFAULT_STREAMING_THRESHOLD),
+                Path.of(""));
     }
 
-    // Package-private constructor for testing
+    // Package-private constructor for testing; the formatter is also used by --watch and --daemon
     TableTestFormatterCli(FileDiscovery fileDiscovery, FileFormatter fileFormatter) {
+        this(fileDiscovery, fileFormatter, fileFormatter, Path.of(""));
+    }
+
+    /**
+     * Creates a CLI that serves a daemon client: it shares the daemon's formatter and
+     * resolves relative paths against the client's working directory.
+     */
+    TableTestFormatterCli(FileFormatter fileFormatter, Path workingDirectory) {
+        this(null, fileFormatter, fileFormatter, workingDirectory);
+    }
+
+    private TableTestFormatterCli(
+            FileDiscovery fileDiscovery,
+            FileFormatter fileFormatter,
+            FileFormatter longRunningFormatter,
+            Path workingDirectory) {
         this.fileDiscovery = fileDiscovery;
         this.fileFormatter = fileFormatter;
+        this.longRunningFormatter = longRunningFormatter;
+        this.workingDirectory = workingDirectory;
+    }
+
+    /**
+     * Where to take the files touched by a change from, instead of formatting every file
+     * found under the given paths.
+     */
+    static class ChangeSelection {
+
+        @Option(
+                names = "--since",
+                paramLabel = "REF",
+                description = "Only format files changed since the current branch forked from REF")
+        private String sinceRef;
+
+        @Option(
+                names = "--staged",
+                description = "Only format files with staged changes; the working-tree copy is formatted"
+                        + " or checked, which differs from what is committed if only some changes are staged")
+        private boolean staged;
+
+        @Option(
+                names = "--ratchet-from",
+                paramLabel = "REF",
+                description = "Only format tables on lines changed since the current branch forked from REF,"
+                        + " leaving other tables as they are")
+        private String ratchetRef;
+
+        @Option(
+                names = "--files-from",
+                paramLabel = "FILE",
+                description = "Only format files listed in FILE, or on standard input if '-';"
+                        + " one per line, or NUL-separated")
+        private Path filesFrom;
     }
 
     @Override
     public Integer call() {
+        if (daemon) {
+            return runDaemon();
+        }
+        if (checkpoint) {
+            return runCheckpoint();
+        }
+        if (stdinFilepath != null) {
+            if (!paths.isEmpty() || changeSelection != null || watch) {
+                throw new CommandLine.ParameterException(
+                        spec.commandLine(),
+                        "--stdin-filepath cannot be combined with paths, --since, --staged, --ratchet-from,"
+                                + " --files-from or --watch");
+            }
+            return formatStandardInput();
+        }
+        if (paths.isEmpty() && changeSelection == null) {
+            throw new CommandLine.ParameterException(
+                    spec.commandLine(),
+                    "Missing required parameter: 'PATH' (or --since, --staged, --ratchet-from, --files-from)");
+        }
+        if (watch && changeSelection != null) {
+            throw new CommandLine.ParameterException(
+                    spec.commandLine(),
+                    "--watch cannot be combined with --since, --staged, --ratchet-from or --files-from");
+        }
+        List<Path> inputPaths;
+        try {
+            inputPaths = changeSelection == null
+                    ? paths.stream().map(workingDirectory::resolve).toList()
+                    : changedFiles();
+        } catch (IOException e) {
+            err().println("Error: " + e.getMessage());
+            return 1;
+        }
+
+        FileDiscovery discovery;
         try {
-            List<Path> files = fileDiscovery.discover(paths);
+            discovery = fileDiscovery != null
+                    ? fileDiscovery
+                    : new FileDiscovery(prunedDirectories, !noGitIgnore, includeGlobs, excludeGlobs);
+        } catch (PatternSyntaxException e) {
+            err().println("Error: invalid glob: " + e.getMessage());
+            return 2;
+        }
+        if (watch) {
+            return runWatch(discovery, inputPaths);
+        }
+        // Files are formatted as they are discovered, so walk errors can surface part way
+        FormattingStatus status = new FormattingStatus();
+        try (Stream<Path> files = discovery.stream(inputPaths)) {
+            formatFiles(fileFormatter, files, outcome -> {}, status);
 
-            if (files.isEmpty()) {
-                System.out.println("No files found to format");
+            if (status.filesChecked() == 0) {
+                out().println("No files found to format");
                 return 0;
             }
 
-            FormattingStatus status = formatFiles(files);
-
             printSummary(status);
 
             return determineExitCode(status);
 
+        } catch (UncheckedIOException e) {
+            err().println("Error: " + e.getCause().getMessage());
+            // Files before the error may have been rewritten already
+            if (status.filesChecked() > 0) {
+                printSummary(status);
+            }
+            return 1;
+        }
+    }
+
+    /**
+     * Formats standard input as the content of the --stdin-filepath file, writing the result
+     * to standard output as each table is formatted, in UTF-8 like the files formatted in
+     * place. Nothing touches the file system but the .editorconfig lookup. In check mode,
+     * only reports whether the input needs formatting.
+     */
+    private int formatStandardInput() {
+        Path file = workingDirectory.resolve(stdinFilepath);
+        String content;
+        try {
+            content = new String(System.in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            err().println("Error: failed to read standard input: " + e.getMessage());
+            return 1;
+        }
+        if (checkMode) {
+            FormattingResult result = fileFormatter.format(file, content);
+            if (result.changed() || verbose) {
+                printFileStatus(result);
+            }
+            return result.changed() ? 1 : 0;
+        }
+        try {
+            Writer output = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+            fileFormatter.formatTo(file, content, output);
+            output.flush();
+            return 0;
         } catch (IOException e) {
-            System.err.println("Error: " + e.getMessage());
+            err().println("Error: failed to write standard output: " + e.getMessage());
             return 1;
         }
     }
 
-    private FormattingStatus formatFiles(List<Path> files) {
+    /**
+     * The files touched by the selected change, limited to those under the given paths if any.
+     * They are formatted as given: directories are not walked for them.
+     */
+    private List<Path> changedFiles() throws IOException {
+        ChangedFiles changedFiles = new ChangedFiles(workingDirectory);
+        List<Path> files;
+        if (changeSelection.ratchetRef != null) {
+            ratchetLines = new LinkedHashMap<>();
+            changedFiles
+                    .changedLines(changeSelection.ratchetRef)
+                    .forEach((file, lines) -> ratchetLines.put(workingDirectory.resolve(file), lines));
+            files = List.copyOf(ratchetLines.keySet());
+        } else if (changeSelection.sinceRef != null) {
+            files = changedFiles.since(changeSelection.sinceRef);
+        } else if (changeSelection.staged) {
+            files = changedFiles.staged();
+        } else if (changeSelection.filesFrom.toString().equals("-")) {
+            files = changedFiles.readList(System.in);
+        } else {
+            try (InputStream input = Files.newInputStream(workingDirectory.resolve(changeSelection.filesFrom))) {
+                files = changedFiles.readList(input);
+            }
+        }
+        files = files.stream().map(workingDirectory::resolve).toList();
+        if (paths.isEmpty()) {
+            return files;
+        }
+        List<Path> roots = paths.stream()
+                .map(path -> workingDirectory.resolve(path).toAbsolutePath().normalize())
+                .toList();
+        return files.stream()
+                .filter(file -> roots.stream().anyMatch(file.toAbsolutePath().normalize()::startsWith))
+                .toList();
+    }
+
+    /**
+     * Formats the files with {@code formatter}, passing each outcome to {@code listener}
+     * once reported.
+     */
+    private FormattingStatus formatFiles(
+            FileFormatter formatter, Stream<Path> files, Consumer<FormattingPipeline.FileOutcome> listener) {
         FormattingStatus status = new FormattingStatus();
+        formatFiles(formatter, files, listener, status);
+        return status;
+    }
 
-        for (Path file : files) {
-            try {
-                FormattingResult result = fileFormatter.format(file);
-                status.addResult(result);
+    /**
+     * Formats the files, concurrently when more than one thread is configured, adding each
+     * outcome to {@code status} as it is reported, in the order the files were discovered,
+     * whichever finishes first. If the stream fails part way, {@code status} holds the files
+     * done before it did.
+     */
+    private void formatFiles(
+            FileFormatter formatter,
+            Stream<Path> files,
+            Consumer<FormattingPipeline.FileOutcome> listener,
+            FormattingStatus status) {
+        RunStatistics statistics = statisticsFormat == null
+                ? RunStatistics.disabled()
+                : RunStatistics.start(RunStatistics.DEFAULT_SLOWEST);
+        FormattingCache cache = openCache();
+        try {
+            new FormattingPipeline(formatter, checkMode, threads, maxInFlightBytes, ratchetLines, cache, statistics)
+                    .run(files, outcome -> {
+                        report(status, outcome);
+                        listener.accept(outcome);
+                    });
+        } finally {
+            closeCache(cache);
+        }
+        printStatistics(statistics);
+    }
 
-                if (verbose) {
-                    printFileStatus(result);
-                }
+    private void printStatistics(RunStatistics statistics) {
+        if (!statistics.isEnabled()) {
+            return;
+        }
+        statistics.finish();
+        if (statisticsFormat == RunStatistics.Format.JSON) {
+            err().println(statistics.toJson());
+        } else {
+            err().print(statistics.toText());
+        }
+        err().flush();
+    }
 
-                if (!checkMode && result.changed()) {
-                    writeFormattedContent(file, result.formattedContent());
-                }
-            } catch (IOException | UncheckedIOException e) {
-                status.addFailure(file);
-                System.err.println("Error formatting " + file + ": " + e.getMessage());
-            }
+    /**
+     * Opens the cache if asked for and usable; a cache that cannot be opened only costs
+     * speed, so the run goes ahead without it.
+     */
+    private FormattingCache openCache() {
+        if (!useCache || ratchetLines != null) {
+            return null;
+        }
+        try {
+            return FormattingCache.open(workingDirectory.resolve(cacheDirectory), VersionProvider.version());
+        } catch (IOException e) {
+            err().println("Warning: not using cache: " + e.getMessage());
+            return null;
         }
+    }
 
-        return status;
+    private void closeCache(FormattingCache cache) {
+        if (cache == null) {
+            return;
+        }
+        try {
+            cache.close();
+        } catch (IOException e) {
+            err().println("Warning: failed to save cache: " + e.getMessage());
+        }
     }
 
-    private void printFileStatus(FormattingResult result) {
-        String statusMessage = result.changed() ? "needs formatting" : "already formatted";
-        System.out.println(result.file() + " - " + statusMessage);
+    /**
+     * Formats the files, then formats them again as they change, until interrupted. The
+     * formatter is kept warm between changes and follows edits to .editorconfig files.
+     */
+    private int runWatch(FileDiscovery discovery, List<Path> inputPaths) {
+        FileFormatter watchFormatter = longRunningFormatter;
+        try (FileWatcher watcher = new FileWatcher(discovery, FileWatcher.DEFAULT_DEBOUNCE)) {
+            FormattingStatus status;
+            try (Stream<Path> files = watcher.discover(inputPaths)) {
+                status = formatFiles(watchFormatter, files, outcome -> recordWrite(watcher, outcome));
+            }
+            if (status.filesChecked() == 0) {
+                out().println("No files found to format");
+            } else {
+                printSummary(status);
+            }
+            out().println("Watching for changes, press Ctrl+C to stop");
+            out().flush();
+
+            while (true) {
+                List<Path> changed = watcher.awaitChanges();
+                formatFiles(watchFormatter, changed.stream(), outcome -> {
+                    recordWrite(watcher, outcome);
+                    // Verbose reporting has printed it already
+                    if (!verbose && outcome.result() != null) {
+                        printFileStatus(outcome.result());
+                    }
+                });
+                out().flush();
+            }
+        } catch (IOException e) {
+            err().println("Error: " + e.getMessage());
+            return 1;
+        } catch (UncheckedIOException e) {
+            err().println("Error: " + e.getCause().getMessage());
+            return 1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        }
     }
 
-    private void writeFormattedContent(Path file, String content) throws IOException {
-        Path tempFile = Files.createTempFile(file.toAbsolutePath().getParent(), ".tabletest-format-", ".tmp");
+    private void recordWrite(FileWatcher watcher, FormattingPipeline.FileOutcome outcome) {
+        if (!checkMode
+                && outcome.error() == null
+                && outcome.result() != null
+                && outcome.result().changed()) {
+            watcher.recordWrite(outcome.file());
+        }
+    }
+
+    /**
+     * Serves daemon clients until the daemon has been idle for its timeout.
+     */
+    private int runDaemon() {
         try {
-            Files.writeString(tempFile, content);
-            copyPermissions(file, tempFile);
-            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Path socket = daemonSocket != null ? daemonSocket : DaemonClient.defaultSocket(VersionProvider.version());
+            try (FormatterDaemon formatterDaemon = FormatterDaemon.bind(
+                    socket, longRunningFormatter, Duration.ofMinutes(FormatterDaemon.IDLE_TIMEOUT_MINUTES))) {
+                formatterDaemon.serve();
+            }
+            return 0;
         } catch (IOException e) {
-            Files.deleteIfExists(tempFile);
-            throw new IOException("Failed to write formatted content to " + file, e);
+            err().println("Error: " + e.getMessage());
+            return 1;
         }
     }
 
-    private void copyPermissions(Path source, Path target) throws IOException {
+    /**
+     * Warms up and checkpoints this process. A restore that names the main class and new
+     * arguments runs those in the restored process instead of returning here.
+     */
+    private int runCheckpoint() {
         try {
-            Files.setPosixFilePermissions(target, Files.getPosixFilePermissions(source));
+            Checkpoint.warmUp(Checkpoint.WARM_UP_ROUNDS);
+            out().println("Warmed up, writing checkpoint");
+            out().flush();
+            Checkpoint.checkpointRestore();
+            return 0;
+        } catch (IOException e) {
+            err().println("Error: " + e.getMessage());
+            return 1;
         } catch (UnsupportedOperationException e) {
-            // Non-POSIX filesystem (e.g. Windows): temp file keeps its default permissions
+            err().println("Error: this JVM does not support CRaC checkpoints");
+            return 1;
         }
     }
 
+    private PrintWriter out() {
+        return spec.commandLine().getOut();
+    }
+
+    private PrintWriter err() {
+        return spec.commandLine().getErr();
+    }
+
+    private void report(FormattingStatus status, FormattingPipeline.FileOutcome outcome) {
+        if (outcome.result() != null) {
+            status.addResult(outcome.result());
+
+            if (verbose) {
+                printFileStatus(outcome.result());
+            }
+        }
+        if (outcome.error() != null) {
+            status.addFailure(outcome.file());
+            err().println("Error formatting " + outcome.file() + ": "
+                    + outcome.error().getMessage());
+        }
+    }
+
+    private void printFileStatus(FormattingResult result) {
+        String statusMessage = result.changed() ? "needs formatting" : "already formatted";
+        out().println(result.file() + " - " + statusMessage);
+    }
+
     private void printSummary(FormattingStatus status) {
         String mode = checkMode ? "Checked" : "Formatted";
-        System.out.println(mode + " " + status.filesChecked() + " files");
+        out().println(mode + " " + status.filesChecked() + " files");
 
         if (status.hasChanges()) {
             if (checkMode) {
-                System.out.println(status.filesChanged() + " files need formatting:");
-                status.changedFiles().forEach(file -> System.out.println("  " + file));
+                out().println(status.filesChanged() + " files need formatting:");
+                status.changedFiles().forEach(file -> out().println("  " + file));
             } else {
-                System.out.println(status.filesChanged() + " files were reformatted");
+                out().println(status.filesChanged() + " files were reformatted");
             }
         } else {
-            System.out.println("All files are already formatted");
+            out().println("All files are already formatted");
         }
 
         if (status.hasFailures()) {
-            System.err.println(status.filesFailed() + " files could not be formatted:");
-            status.failedFiles().forEach(file -> System.err.println("  " + file));
+            err().println(status.filesFailed() + " files could not be formatted:");
+            status.failedFiles().forEach(file -> err().println("  " + file));
         }
     }
 
@@ -187,7 +649,102 @@ public class TableTestFormatterCli implements Callable<Integer> {
         return status.hasFailures() || (status.hasChanges() && checkMode) ? 1 : 0;
     }
 
+    /**
+     * Converts {@code --threads} values: a positive number, or {@code auto} for the number of
+     * processors available to the JVM. The JVM derives that from the container's CPU quota
+     * when running under cgroups, so {@code auto} does not oversubscribe a limited CI runner.
+     */
+    static class ThreadCountConverter implements CommandLine.ITypeConverter<Integer> {
+
+        @Override
+        public Integer convert(String value) {
+            if (value.equalsIgnoreCase("auto")) {
+                return Runtime.getRuntime().availableProcessors();
+            }
+            try {
+                int threads = Integer.parseInt(value);
+                if (threads > 0) {
+                    return threads;
+                }
+            } catch (NumberFormatException e) {
+                // Fall through to the conversion error below
+            }
+            throw new CommandLine.TypeConversionException(
+                    "'" + value + "' is not a valid thread count: expected a positive number or 'auto'");
+        }
+    }
+
+    /**
+     * Converts {@code --max-in-flight-bytes} values: a positive number of bytes, optionally
+     * followed by {@code K}, {@code M} or {@code G} for binary kilo-, mega- or gigabytes.
+     */
+    static class ByteSizeConverter implements CommandLine.ITypeConverter<Long> {
+
+        @Override
+        public Long convert(String value) {
+            String digits = value;
+            long unit = 1;
+            if (!value.isEmpty()) {
+                int shift = "KMG".indexOf(Character.toUpperCase(value.charAt(value.length() - 1)));
+                if (shift >= 0) {
+                    digits = value.substring(0, value.length() - 1);
+                    unit = 1L << (10 * (shift + 1));
+                }
+            }
+            try {
+                long size = Math.multiplyExact(Long.parseLong(digits), unit);
+                if (size > 0) {
+                    return size;
+                }
+            } catch (NumberFormatException | ArithmeticException e) {
+                // Fall through to the conversion error below
+            }
+            throw new CommandLine.TypeConversionException(
+                    "'" + value + "' is not a valid size: expected a positive number of bytes, optionally"
+                            + " followed by K, M or G");
+        }
+    }
+
+    /**
+     * Takes the {@code --stats} format, {@code text} or {@code json} ignoring case, only if it
+     * follows; anything else is left for the next option or path, so {@code --stats src}
+     * prints text statistics for {@code src} rather than failing to read a format. A value
+     * attached with {@code =} can only be a format, so {@code --stats=xml} is an error.
+     */
+    static class StatisticsFormatPreprocessor implements CommandLine.IParameterPreprocessor {
+
+        @Override
+        public boolean preprocess(
+                Stack<String> args, CommandSpec commandSpec, ArgSpec argSpec, Map<String, Object> info) {
+            RunStatistics.Format format = null;
+            if (!args.isEmpty()) {
+                for (RunStatistics.Format candidate : RunStatistics.Format.values()) {
+                    if (candidate.name().equalsIgnoreCase(args.peek())) {
+                        format = candidate;
+                        args.pop();
+                        break;
+                    }
+                }
+            }
+            if (format == null && "=".equals(info.get("separator"))) {
+                throw new CommandLine.ParameterException(
+                        commandSpec.commandLine(),
+                        "Invalid value for option '--stats': '" + args.peek()
+                                + "' is not a statistics format: expected 'text' or 'json'");
+            }
+            argSpec.setValue(format == null ? RunStatistics.Format.TEXT : format);
+            return true;
+        }
+    }
+
     public static void main(String[] args) {
+        if (List.of(args).contains("--use-daemon")) {
+            // Hand the run to a daemon before paying for anything a short-lived JVM need not load
+            OptionalInt exitCode = DaemonClient.run(List.of(args));
+            if (exitCode.isPresent()) {
+                System.exit(exitCode.getAsInt());
+            }
+        }
         System.exit(new CommandLine(new TableTestFormatterCli()).execute(args));
     }
 }
@@ -30,13 +30,20 @@ class VersionProvider implements CommandLine.IVersionProvider {
 
     @Override
     public String[] getVersion() throws IOException {
+        return new String[] {version()};
+    }
+
+    /**
+     * The project version, or "unknown" if the build did not record it.
+     */
+    static String version() throws IOException {
         try (InputStream stream = VersionProvider.class.getResourceAsStream("version.properties")) {
             if (stream == null) {
-                return new String[] {"unknown"};
+                return "unknown";
             }
             Properties properties = new Properties();
             properties.load(stream);
-            return new String[] {properties.getProperty("version", "unknown")};
+            return properties.getProperty("version", "unknown");
         }
     }
 }
@@ -0,0 +1,19 @@
+@echo off
+rem Runs the TableTest formatter CLI on the bundled Java runtime, tuned for short-lived runs.
+rem Extra JVM options go in TABLETEST_FORMAT_JAVA_OPTS.
+setlocal
+
+set "APP_HOME=%~dp0.."
+set "JAVA=%APP_HOME%\runtime\bin\java.exe"
+if not exist "%JAVA%" set "JAVA=java"
+
+rem Class data recorded by the build's training run, skipped quietly if it does not match
+set CACHE=
+if exist "%APP_HOME%\lib\tabletest-format.aot" (
+    set CACHE="-XX:AOTCache=%APP_HOME%\lib\tabletest-format.aot" -Xlog:aot=off
+) else if exist "%APP_HOME%\lib\tabletest-format.jsa" (
+    set CACHE="-XX:SharedArchiveFile=%APP_HOME%\lib\tabletest-format.jsa" -Xlog:cds=off -Xlog:cds+dynamic=off
+)
+
+"%JAVA%" -XX:TieredStopAtLevel=1 -XX:+UseSerialGC -XX:-UsePerfData %TABLETEST_FORMAT_JAVA_OPTS% %CACHE% -jar "%APP_HOME%\lib\tabletest-formatter-cli.jar" %*
+exit /b %ERRORLEVEL%
@@ -0,0 +1,60 @@
+package example;
+
+import org.tabletest.TableTest;
+
+class TrainingTest {
+
+    @TableTest("""
+        Scenario|Input|Expected
+        Empty string|''|0
+        Single word|hello|1
+        Several words|"the quick brown fox"|4
+        // comment between rows
+        Leading spaces|'   padded'|1
+        """)
+    void countsWords(String input, int expected) {}
+
+    @TableTest("""
+    name|greeting|width
+    Ålesund|Hei på deg|10
+
+    東京|こんにちは|10
+    Emoji|👋🏽 hi|5
+    Family|👨‍👩‍👧|2
+    Flag|🇳🇴|2
+    """)
+    void measuresDisplayWidth(String name, String greeting, int width) {}
+
+    @TableTest("""
+            Collection|Size?
+            []|0
+            [1, 2, 3]|3
+            [a: 1, b: 2]|2
+            ["quoted|pipe", 'single']|2
+            {x, y}|2
+            [[1,2],[3]]|2
+            """)
+    void sizesCollections(Object collection, int size) {}
+
+    @TableTest({"day|weekend","Saturday|true","Monday|false"})
+    void knowsWeekends(String day, boolean weekend) {}
+
+    @TableTest(value = {
+        "amount|currency|formatted",
+        "1000|NOK|kr 1 000",
+        // "0|NOK|kr 0",
+        "",
+        "12.5|EUR|€12.50"
+    })
+    void formatsMoney(String amount, String currency, String formatted) {}
+
+    static class Nested {
+
+        @TableTest("""
+            left|right|sum
+            1|2|3
+            100|-1|99
+            """)
+        void adds(int left, int right, int sum) {}
+    }
+}
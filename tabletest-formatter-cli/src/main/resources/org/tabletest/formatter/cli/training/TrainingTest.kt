@@ -0,0 +1,24 @@
+package example
+
+import org.tabletest.TableTest
+
+class TrainingTest {
+
+    @TableTest("""
+    input|expected|description
+    foo|FOO|lowercase to uppercase
+    BAR|BAR|already uppercase
+    ß|SS|sharp s
+    """)
+    fun convertsCase(input: String, expected: String, description: String) {}
+
+    @TableTest(
+        """
+        Map|Keys
+        [a: 1]|[a]
+        ["x y": 1, 'z': 2]|["x y", z]
+        [:]|[]
+        """
+    )
+    fun listsKeys(map: Map<String, Int>, keys: List<String>) {}
+}
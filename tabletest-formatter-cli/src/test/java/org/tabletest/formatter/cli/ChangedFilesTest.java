@@ -0,0 +1,140 @@
+package org.tabletest.formatter.cli;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.tabletest.formatter.core.LineRange;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class ChangedFilesTest {
+
+    @Test
+    void shouldListStagedFilesOnly(@TempDir Path repository) throws IOException, InterruptedException {
+        initRepository(repository);
+        write(repository, "Staged.java");
+        write(repository, "Unstaged.java");
+        git(repository, "add", "Staged.java");
+
+        List<Path> staged = new ChangedFiles(repository).staged();
+
+        assertThat(staged).containsExactly(Path.of("Staged.java"));
+    }
+
+    @Test
+    void shouldListFilesChangedSinceForkPointExceptDeleted(@TempDir Path repository)
+            throws IOException, InterruptedException {
+        initRepository(repository);
+        git(repository, "checkout", "-q", "-b", "feature");
+        write(repository, "src/Feature.java");
+        git(repository, "add", ".");
+        git(repository, "commit", "-q", "-m", "feature");
+        // A later change on main is not part of the feature branch
+        git(repository, "checkout", "-q", "main");
+        write(repository, "Main.java");
+        git(repository, "add", ".");
+        git(repository, "commit", "-q", "-m", "main");
+        git(repository, "checkout", "-q", "feature");
+        Files.writeString(repository.resolve("Committed.java"), "class Changed {}");
+        Files.delete(repository.resolve("Deleted.java"));
+
+        List<Path> changed = new ChangedFiles(repository).since("main");
+
+        assertThat(changed).containsExactlyInAnyOrder(Path.of("Committed.java"), Path.of("src/Feature.java"));
+    }
+
+    @Test
+    void shouldReturnPathsRelativeToWorkingDirectory(@TempDir Path repository)
+            throws IOException, InterruptedException {
+        initRepository(repository);
+        write(repository, "src/Staged.java");
+        git(repository, "add", ".");
+
+        List<Path> staged = new ChangedFiles(repository.resolve("src")).staged();
+
+        assertThat(staged).containsExactly(Path.of("Staged.java"));
+    }
+
+    @Test
+    void shouldListChangedLinesSinceForkPoint(@TempDir Path repository) throws IOException, InterruptedException {
+        initRepository(repository);
+        Files.writeString(repository.resolve("Lines.java"), "one\ntwo\nthree\nfour\nfive\nsix\n");
+        git(repository, "add", ".");
+        git(repository, "commit", "-q", "-m", "lines");
+        // Change line 2, insert after line 4 and delete line 6
+        Files.writeString(repository.resolve("Lines.java"), "one\nTWO\nthree\nfour\n+++ b/Fake.java\nfive\n");
+        write(repository, "src/New.java");
+        git(repository, "add", "src/New.java");
+
+        Map<Path, List<LineRange>> changedLines = new ChangedFiles(repository).changedLines("HEAD");
+
+        assertThat(changedLines)
+                .containsOnlyKeys(Path.of("Lines.java"), Path.of("src/New.java"))
+                .containsEntry(
+                        Path.of("Lines.java"), List.of(new LineRange(2, 2), new LineRange(5, 5), new LineRange(6, 7)))
+                .containsEntry(Path.of("src/New.java"), List.of(new LineRange(1, 1)));
+    }
+
+    @Test
+    void shouldReportGitErrors(@TempDir Path repository) throws IOException, InterruptedException {
+        initRepository(repository);
+
+        assertThatThrownBy(() -> new ChangedFiles(repository).since("no-such-ref"))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("git merge-base");
+    }
+
+    @Test
+    void shouldReadNewlineAndNulSeparatedLists(@TempDir Path repository) throws IOException {
+        ChangedFiles changedFiles = new ChangedFiles(repository);
+
+        assertThat(changedFiles.readList(input("A.java\r\nsrc/B.kt\n\nc.table\n")))
+                .containsExactly(Path.of("A.java"), Path.of("src/B.kt"), Path.of("c.table"));
+        assertThat(changedFiles.readList(input("with space.java\0new\nline.java\0")))
+                .containsExactly(Path.of("with space.java"), Path.of("new\nline.java"));
+    }
+
+    private static void initRepository(Path repository) throws IOException, InterruptedException {
+        assumeTrue(git(repository, "init", "-q", "-b", "main"), "git is not available");
+        write(repository, "Committed.java");
+        write(repository, "Deleted.java");
+        git(repository, "add", ".");
+        git(repository, "commit", "-q", "-m", "initial");
+    }
+
+    private static ByteArrayInputStream input(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void write(Path repository, String file) throws IOException {
+        Path path = repository.resolve(file);
+        Files.createDirectories(path.getParent());
+        Files.writeString(path, "class " + path.getFileName().toString().replace(".java", "") + " {}");
+    }
+
+    private static boolean git(Path repository, String... arguments) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>(List.of(
+                "git", "-c", "user.name=Test", "-c", "user.email=test@example.com", "-c", "commit.gpgsign=false"));
+        command.addAll(List.of(arguments));
+        try {
+            Process process = new ProcessBuilder(command)
+                    .directory(repository.toFile())
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            return process.waitFor() == 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package org.tabletest.formatter.cli;
+
+import org.junit.jupiter.api.Test;
+import org.tabletest.formatter.config.Config;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CheckpointTest {
+
+    @Test
+    void shouldWarmUpOnUnformattedTrainingCorpus() throws IOException {
+        assertThat(Checkpoint.warmUp(1)).isPositive();
+        assertThat(Checkpoint.warmUp(2)).isGreaterThan(Checkpoint.warmUp(1));
+    }
+
+    @Test
+    void shouldReformatCorpusWithEveryConfig() throws IOException {
+        // Edits show each config exercises reformatting, not only parsing
+        for (Config config : Checkpoint.SOURCE_CONFIGS) {
+            assertThat(Checkpoint.sourceEdits(config))
+                    .as("edits with %s", config)
+                    .isPositive();
+        }
+    }
+}
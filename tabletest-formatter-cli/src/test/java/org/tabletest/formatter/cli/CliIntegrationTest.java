@@ -4,18 +4,26 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 import picocli.CommandLine;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.io.UncheckedIOException;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.attribute.PosixFilePermission;
 import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assumptions.assumeTrue;
@@ -281,6 +289,306 @@ class CliIntegrationTest {
         }
     }
 
+    @Test
+    void shouldFormatFilesConcurrentlyAndReportInSortedOrder(@TempDir Path tempDir)
+            throws IOException, URISyntaxException {
+        // Given: several unformatted files
+        List<String> fileNames = List.of(
+                "DeepIndentationTest.java",
+                "MultiTableTest.kt",
+                "NamedParameterTest.java",
+                "SimpleTest.java",
+                "StringArrayTest.java",
+                "data.table");
+        for (String fileName : fileNames) {
+            copyUnformattedFile(tempDir.resolve(fileName));
+        }
+
+        // When: applying formatting on several threads with verbose output
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        PrintStream originalOut = System.out;
+        int exitCode;
+        try {
+            System.setOut(new PrintStream(output, true, StandardCharsets.UTF_8));
+            exitCode = new CommandLine(new TableTestFormatterCli())
+                    .execute("--threads", "4", "--verbose", tempDir.toString());
+        } finally {
+            System.setOut(originalOut);
+        }
+
+        // Then: every file is formatted and reported in discovery order
+        assertThat(exitCode).isZero();
+        for (String fileName : fileNames) {
+            assertThat(actualContent(tempDir.resolve(fileName))).isEqualTo(expectedContent(tempDir.resolve(fileName)));
+        }
+        List<String> reported = output.toString(StandardCharsets.UTF_8)
+                .lines()
+                .filter(line -> line.endsWith(" - needs formatting"))
+                .toList();
+        assertThat(reported)
+                .containsExactlyElementsOf(fileNames.stream()
+                        .map(fileName -> tempDir.resolve(fileName) + " - needs formatting")
+                        .toList());
+    }
+
+    @Test
+    void shouldRejectInvalidThreadCount(@TempDir Path tempDir) {
+        CommandLine commandLine = new CommandLine(new TableTestFormatterCli());
+        commandLine.setErr(new PrintWriter(new StringWriter()));
+
+        assertThat(commandLine.execute("--threads", "0", tempDir.toString())).isEqualTo(2);
+        assertThat(commandLine.execute("--threads", "many", tempDir.toString())).isEqualTo(2);
+    }
+
+    @Test
+    void shouldFormatConcurrentlyWithinInFlightBudget(@TempDir Path tempDir) throws IOException, URISyntaxException {
+        // Given: an unreadable file alongside several unformatted files
+        Path badFile = tempDir.resolve("Broken.java");
+        Files.write(badFile, new byte[] {(byte) 0xC3, (byte) 0x28});
+        List<String> fileNames = List.of("DeepIndentationTest.java", "SimpleTest.java", "data.table");
+        for (String fileName : fileNames) {
+            copyUnformattedFile(tempDir.resolve(fileName));
+        }
+
+        // When: applying formatting on several threads with a budget smaller than any file
+        int exitCode = new CommandLine(new TableTestFormatterCli())
+                .execute("--threads", "4", "--max-in-flight-bytes", "1K", tempDir.toString());
+
+        // Then: files still go through one at a time, and the unreadable one is reported
+        assertThat(exitCode).isEqualTo(1);
+        for (String fileName : fileNames) {
+            assertThat(actualContent(tempDir.resolve(fileName))).isEqualTo(expectedContent(tempDir.resolve(fileName)));
+        }
+    }
+
+    @Test
+    void shouldRejectInvalidInFlightBudget(@TempDir Path tempDir) {
+        CommandLine commandLine = new CommandLine(new TableTestFormatterCli());
+        commandLine.setErr(new PrintWriter(new StringWriter()));
+
+        assertThat(commandLine.execute("--max-in-flight-bytes", "0", tempDir.toString()))
+                .isEqualTo(2);
+        assertThat(commandLine.execute("--max-in-flight-bytes", "lots", tempDir.toString()))
+                .isEqualTo(2);
+        assertThat(commandLine.execute("--max-in-flight-bytes", "99999999999G", tempDir.toString()))
+                .isEqualTo(2);
+    }
+
+    @Test
+    void shouldSkipBuildDirectoriesUnlessPruningIsDisabled(@TempDir Path tempDir)
+            throws IOException, URISyntaxException {
+        // Given: an unformatted file inside a Gradle module's build output directory
+        Files.writeString(tempDir.resolve("build.gradle"), "");
+        Path buildFile = tempDir.resolve("build/SimpleTest.java");
+        Files.createDirectories(buildFile.getParent());
+        copyUnformattedFile(buildFile);
+        String unformatted = actualContent(buildFile);
+
+        // When: applying formatting with the default pruned directories
+        int exitCode = executeCliApplyMode(tempDir);
+
+        // Then: the build directory is not entered
+        assertThat(exitCode).isZero();
+        assertThat(actualContent(buildFile)).isEqualTo(unformatted);
+
+        // When: applying formatting with pruning disabled
+        exitCode = new CommandLine(new TableTestFormatterCli()).execute("--prune-dirs=", tempDir.toString());
+
+        // Then: the file is formatted
+        assertThat(exitCode).isZero();
+        assertThat(actualContent(buildFile)).isEqualTo(expectedContent(buildFile));
+    }
+
+    @Test
+    void shouldSkipFilesMatchingExcludeGlob(@TempDir Path tempDir) throws IOException, URISyntaxException {
+        // Given: unformatted files, one in a generated directory
+        Path sourceFile = tempDir.resolve("src/SimpleTest.java");
+        Path generatedFile = tempDir.resolve("generated/SimpleTest.java");
+        Files.createDirectories(sourceFile.getParent());
+        Files.createDirectories(generatedFile.getParent());
+        copyUnformattedFile(sourceFile);
+        copyUnformattedFile(generatedFile);
+        String unformatted = actualContent(generatedFile);
+
+        // When: applying formatting excluding the generated directory
+        int exitCode = new CommandLine(new TableTestFormatterCli())
+                .execute("--exclude", "**/generated/**", tempDir.toString());
+
+        // Then: only the file outside it is formatted
+        assertThat(exitCode).isZero();
+        assertThat(actualContent(sourceFile)).isEqualTo(expectedContent(sourceFile));
+        assertThat(actualContent(generatedFile)).isEqualTo(unformatted);
+    }
+
+    @Test
+    void shouldSummarizeFilesFormattedBeforeWalkError(@TempDir Path tempDir) throws IOException, URISyntaxException {
+        // Given: discovery that fails after finding one unformatted file
+        Path testFile = tempDir.resolve("SimpleTest.java");
+        copyUnformattedFile(testFile);
+        FileDiscovery failingDiscovery = new FileDiscovery() {
+            @Override
+            public Stream<Path> stream(List<Path> inputPaths) {
+                return Stream.concat(
+                        Stream.of(testFile),
+                        Stream.<Path>generate(() -> {
+                                    throw new UncheckedIOException(new IOException("Cannot list " + tempDir));
+                                })
+                                .limit(1));
+            }
+        };
+        StringWriter output = new StringWriter();
+        StringWriter errors = new StringWriter();
+        CommandLine commandLine = new CommandLine(new TableTestFormatterCli(failingDiscovery, new FileFormatter()));
+        commandLine.setOut(new PrintWriter(output));
+        commandLine.setErr(new PrintWriter(errors));
+
+        // When: formatting
+        int exitCode = commandLine.execute(tempDir.toString());
+
+        // Then: the error is reported along with the file already rewritten
+        assertThat(exitCode).isEqualTo(1);
+        assertThat(actualContent(testFile)).isEqualTo(expectedContent(testFile));
+        assertThat(errors.toString()).contains("Error: Cannot list " + tempDir);
+        assertThat(output.toString()).contains("Formatted 1 files", "1 files were reformatted");
+    }
+
+    @Test
+    void shouldRejectInvalidGlob(@TempDir Path tempDir) {
+        assertThat(new CommandLine(new TableTestFormatterCli()).execute("--include", "[a", tempDir.toString()))
+                .isEqualTo(2);
+    }
+
+    @Test
+    void shouldFormatOnlyFilesListedInFilesFrom(@TempDir Path tempDir) throws IOException, URISyntaxException {
+        // Given: two unformatted files, of which only one is listed
+        Path listedFile = tempDir.resolve("src/SimpleTest.java");
+        Path otherFile = tempDir.resolve("other/SimpleTest.java");
+        Files.createDirectories(listedFile.getParent());
+        Files.createDirectories(otherFile.getParent());
+        copyUnformattedFile(listedFile);
+        copyUnformattedFile(otherFile);
+        String unformatted = actualContent(otherFile);
+        Path list = tempDir.resolve("changed.txt");
+        Files.writeString(list, listedFile + "\n" + otherFile + "\n");
+
+        // When: applying formatting to the listed files under src only
+        int exitCode = new CommandLine(new TableTestFormatterCli())
+                .execute("--files-from", list.toString(), tempDir.resolve("src").toString());
+
+        // Then: only the listed file under src is formatted
+        assertThat(exitCode).isZero();
+        assertThat(actualContent(listedFile)).isEqualTo(expectedContent(listedFile));
+        assertThat(actualContent(otherFile)).isEqualTo(unformatted);
+    }
+
+    @Test
+    void shouldDetectFilesChangedSinceCachedRun(@TempDir Path tempDir) throws IOException, URISyntaxException {
+        // Given: a file formatted by a run that recorded it in the cache
+        Path sourceDir = Files.createDirectories(tempDir.resolve("src"));
+        Path cacheDir = tempDir.resolve("cache");
+        Path testFile = sourceDir.resolve("SimpleTest.java");
+        copyUnformattedFile(testFile);
+        int firstExitCode = new CommandLine(new TableTestFormatterCli())
+                .execute("--cache", "--cache-dir", cacheDir.toString(), sourceDir.toString());
+
+        // When: the file is made unformatted again and checked with the cache
+        copyUnformattedFile(testFile);
+        int secondExitCode = new CommandLine(new TableTestFormatterCli())
+                .execute("--check", "--cache", "--cache-dir", cacheDir.toString(), sourceDir.toString());
+
+        // Then: the change is noticed despite the cached entry
+        assertThat(firstExitCode).isZero();
+        assertThat(cacheDir.resolve("index.bin")).exists();
+        assertThat(secondExitCode).isEqualTo(1);
+    }
+
+    @Test
+    void shouldFormatStandardInputToStandardOutput(@TempDir Path tempDir) throws IOException, URISyntaxException {
+        // Given: tab indentation configured for a file that does not exist
+        Files.writeString(tempDir.resolve(".editorconfig"), "[*.java]\nindent_style = tab\n");
+        Path stdinFile = tempDir.resolve("src/TabIndentationTest.java");
+        String unformatted = readTestFile(UNFORMATTED_DIR, "TabIndentationTest.java");
+
+        // When: its content is formatted from standard input
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        InputStream originalIn = System.in;
+        PrintStream originalOut = System.out;
+        int exitCode;
+        try {
+            System.setIn(new ByteArrayInputStream(unformatted.getBytes(StandardCharsets.UTF_8)));
+            System.setOut(new PrintStream(output, true, StandardCharsets.UTF_8));
+            exitCode = new CommandLine(new TableTestFormatterCli()).execute("--stdin-filepath", stdinFile.toString());
+        } finally {
+            System.setIn(originalIn);
+            System.setOut(originalOut);
+        }
+
+        // Then: nothing is written to disk
+        assertThat(exitCode).isZero();
+        assertThat(stdinFile.getParent()).doesNotExist();
+
+        // And: the output is what formatting the file in place gives, with tabs from .editorconfig
+        Files.createDirectories(stdinFile.getParent());
+        Files.writeString(stdinFile, unformatted);
+        executeCliApplyMode(stdinFile);
+        assertThat(output.toString(StandardCharsets.UTF_8))
+                .isEqualTo(actualContent(stdinFile))
+                .contains("\t\tname  | age");
+    }
+
+    @Test
+    void shouldReportStatisticsAfterFormatting(@TempDir Path tempDir) throws IOException, URISyntaxException {
+        // Given: a file with three unformatted string array tables, of six rows in all
+        Path testFile = tempDir.resolve("StringArrayTest.java");
+        copyUnformattedFile(testFile);
+        StringWriter json = new StringWriter();
+        StringWriter text = new StringWriter();
+
+        // When: formatting with JSON statistics, then checking with text statistics before the path
+        CommandLine jsonRun = new CommandLine(new TableTestFormatterCli());
+        jsonRun.setErr(new PrintWriter(json));
+        int jsonExitCode = jsonRun.execute("--stats=json", tempDir.toString());
+        CommandLine textRun = new CommandLine(new TableTestFormatterCli());
+        textRun.setErr(new PrintWriter(text));
+        int textExitCode = textRun.execute("--check", "--stats", tempDir.toString());
+
+        // Then: the file is formatted and both runs describe it
+        assertThat(jsonExitCode).isZero();
+        assertThat(textExitCode).isZero();
+        assertThat(actualContent(testFile)).isEqualTo(expectedContent(testFile));
+        assertThat(json.toString())
+                .startsWith("{\"wallNanos\":")
+                .contains("\"files\":1,\"tables\":3,\"rows\":6,\"cells\":12,", "\"formatting\":{\"wallNanos\":")
+                .containsPattern("\"bytesWritten\":[1-9]")
+                .contains("\"slowestFiles\":[{\"file\":\"" + testFile + "\"");
+        assertThat(text.toString())
+                .startsWith("Statistics:")
+                .contains("1 files, 3 tables, 6 rows, 12 cells", "Slowest tables:", testFile + " at offset ");
+    }
+
+    @Test
+    void shouldRejectUnknownStatisticsFormatGivenWithEquals(@TempDir Path tempDir) {
+        CommandLine commandLine = new CommandLine(new TableTestFormatterCli());
+        StringWriter errors = new StringWriter();
+        commandLine.setErr(new PrintWriter(errors));
+
+        int exitCode = commandLine.execute("--stats=xml", tempDir.toString());
+
+        assertThat(exitCode).isEqualTo(2);
+        assertThat(errors.toString()).contains("'xml' is not a statistics format");
+    }
+
+    @Test
+    void shouldRequirePathOrChangeSelection() {
+        CommandLine commandLine = new CommandLine(new TableTestFormatterCli());
+        commandLine.setErr(new PrintWriter(new StringWriter()));
+
+        assertThat(commandLine.execute()).isEqualTo(2);
+        assertThat(commandLine.execute("--staged", "--since", "main")).isEqualTo(2);
+        assertThat(commandLine.execute("--watch", "--staged")).isEqualTo(2);
+        assertThat(commandLine.execute("--stdin-filepath", "Foo.java", "src")).isEqualTo(2);
+    }
+
     @Test
     void shouldReportVersionFromBuild() {
         StringWriter output = new StringWriter();
@@ -328,9 +636,9 @@ class CliIntegrationTest {
     }
 
     private String readTestFile(String directory, String fileName) throws URISyntaxException, IOException {
-        Path resourcePath =
-                Paths.get(Objects.requireNonNull(getClass().getClassLoader().getResource(directory + "/" + fileName))
-                        .toURI());
-        return Files.readString(resourcePath);
+        // Read as a stream, not a Path: native images serve resources without a file system
+        try (InputStream stream = getClass().getClassLoader().getResourceAsStream(directory + "/" + fileName)) {
+            return new String(Objects.requireNonNull(stream).readAllBytes(), StandardCharsets.UTF_8);
+        }
     }
 }
@@ -9,6 +9,8 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.attribute.PosixFilePermissions;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -147,4 +149,180 @@ class FileDiscoveryTest {
 
         assertThat(discovered).hasSize(2).containsExactlyInAnyOrder(explicitFile, discoveredFile);
     }
+
+    @Test
+    void shouldNotDescendIntoBuildAndVersionControlDirectories(@TempDir Path tempDir) throws IOException {
+        Path source = tempDir.resolve("src/Test.java");
+        Files.createDirectories(source.getParent());
+        Files.writeString(source, "class Test {}");
+        Files.writeString(tempDir.resolve("pom.xml"), "<project/>");
+        Files.createDirectories(tempDir.resolve("sub"));
+        Files.writeString(tempDir.resolve("sub/build.gradle.kts"), "");
+        for (String pruned : List.of(".git", "target", "build", "node_modules", ".gradle", "sub/target")) {
+            Path prunedFile = tempDir.resolve(pruned).resolve("Generated.java");
+            Files.createDirectories(prunedFile.getParent());
+            Files.writeString(prunedFile, "class Generated {}");
+        }
+
+        FileDiscovery discovery = new FileDiscovery();
+        List<Path> discovered = discovery.discover(List.of(tempDir));
+
+        assertThat(discovered).containsExactly(source);
+    }
+
+    @Test
+    void shouldDescendIntoBuildAndTargetPackagesOutsideModuleRoots(@TempDir Path tempDir) throws IOException {
+        Files.writeString(tempDir.resolve("pom.xml"), "<project/>");
+        Path buildPackage = tempDir.resolve("src/test/java/com/acme/build/FooTest.java");
+        Path targetPackage = tempDir.resolve("src/main/java/com/acme/target/Target.java");
+        Path output = tempDir.resolve("target/generated/Generated.java");
+        for (Path file : List.of(buildPackage, targetPackage, output)) {
+            Files.createDirectories(file.getParent());
+            Files.writeString(file, "class Test {}");
+        }
+
+        FileDiscovery discovery = new FileDiscovery();
+
+        assertThat(discovery.discover(List.of(tempDir))).containsExactly(targetPackage, buildPackage);
+        assertThat(discovery.enters(buildPackage.getParent())).isTrue();
+        assertThat(discovery.enters(output.getParent().getParent())).isFalse();
+    }
+
+    @Test
+    void shouldPruneConfiguredDirectoriesOnly(@TempDir Path tempDir) throws IOException {
+        Path targetFile = tempDir.resolve("target/Kept.java");
+        Path generatedFile = tempDir.resolve("generated/Skipped.java");
+        Files.createDirectories(targetFile.getParent());
+        Files.createDirectories(generatedFile.getParent());
+        Files.writeString(targetFile, "class Kept {}");
+        Files.writeString(generatedFile, "class Skipped {}");
+
+        FileDiscovery discovery = new FileDiscovery(Set.of("generated"));
+        List<Path> discovered = discovery.discover(List.of(tempDir));
+
+        assertThat(discovered).containsExactly(targetFile);
+    }
+
+    @Test
+    void shouldTraversePrunedDirectoryGivenAsInput(@TempDir Path tempDir) throws IOException {
+        Path buildDir = tempDir.resolve("build");
+        Files.createDirectory(buildDir);
+        Path buildFile = buildDir.resolve("Test.java");
+        Files.writeString(buildFile, "class Test {}");
+
+        FileDiscovery discovery = new FileDiscovery();
+        List<Path> discovered = discovery.discover(List.of(buildDir));
+
+        assertThat(discovered).containsExactly(buildFile);
+    }
+
+    @Test
+    void shouldStreamFilesInSortedOrder(@TempDir Path tempDir) throws IOException {
+        // Names around the separator's sort position: '-' and '.' sort before '/', '0' after
+        for (String file : List.of("a-b.java", "a.java", "a/z.java", "a/b/c.kt", "a0.table", "b/x.java")) {
+            Path path = tempDir.resolve(file);
+            Files.createDirectories(path.getParent());
+            Files.writeString(path, "data");
+        }
+
+        FileDiscovery discovery = new FileDiscovery();
+        List<Path> streamed;
+        try (Stream<Path> files = discovery.stream(List.of(tempDir))) {
+            streamed = files.toList();
+        }
+
+        assertThat(streamed).isSorted().isEqualTo(discovery.discover(List.of(tempDir)));
+    }
+
+    @Test
+    void shouldHonourNestedGitIgnoreFilesWithNegation(@TempDir Path tempDir) throws IOException {
+        Files.createDirectory(tempDir.resolve(".git"));
+        Files.writeString(tempDir.resolve(".gitignore"), "generated/\n*.gen.java\n");
+        Path kept = write(tempDir.resolve("src/Kept.java"));
+        write(tempDir.resolve("src/Skipped.gen.java"));
+        write(tempDir.resolve("src/generated/Generated.java"));
+        Files.writeString(tempDir.resolve("src/.gitignore"), "!Wanted.gen.java\nlocal.table\n");
+        Path wanted = write(tempDir.resolve("src/Wanted.gen.java"));
+        write(tempDir.resolve("src/local.table"));
+        Path otherLocal = write(tempDir.resolve("local.table"));
+
+        FileDiscovery discovery = new FileDiscovery();
+        List<Path> discovered = discovery.discover(List.of(tempDir));
+
+        assertThat(discovered).containsExactly(otherLocal, kept, wanted);
+    }
+
+    @Test
+    void shouldJudgeSinglePathsAsListingWould(@TempDir Path tempDir) throws IOException {
+        Files.createDirectory(tempDir.resolve(".git"));
+        Files.writeString(tempDir.resolve(".gitignore"), "generated/\n*.gen.java\n");
+        Files.createDirectories(tempDir.resolve("src/generated"));
+        Files.createDirectories(tempDir.resolve("src/target"));
+        Files.writeString(tempDir.resolve("src/pom.xml"), "<project/>");
+        Files.writeString(tempDir.resolve("src/.gitignore"), "!Wanted.gen.java\n");
+
+        FileDiscovery discovery = new FileDiscovery();
+
+        assertThat(discovery.accepts(tempDir.resolve("src/Kept.java"))).isTrue();
+        assertThat(discovery.accepts(tempDir.resolve("src/Wanted.gen.java"))).isTrue();
+        assertThat(discovery.accepts(tempDir.resolve("src/Skipped.gen.java"))).isFalse();
+        assertThat(discovery.accepts(tempDir.resolve("src/notes.txt"))).isFalse();
+        assertThat(discovery.enters(tempDir.resolve("src/main"))).isTrue();
+        assertThat(discovery.enters(tempDir.resolve("src/generated"))).isFalse();
+        assertThat(discovery.enters(tempDir.resolve("src/target"))).isFalse();
+    }
+
+    @Test
+    void shouldApplyGitIgnoreOfEnclosingRepositoryToInputDirectory(@TempDir Path tempDir) throws IOException {
+        Files.createDirectory(tempDir.resolve(".git"));
+        Files.writeString(tempDir.resolve(".gitignore"), "/module/src/gen\n");
+        Path kept = write(tempDir.resolve("module/src/main/Kept.java"));
+        write(tempDir.resolve("module/src/gen/Generated.java"));
+
+        FileDiscovery discovery = new FileDiscovery();
+        List<Path> discovered = discovery.discover(List.of(tempDir.resolve("module/src")));
+
+        assertThat(discovered).containsExactly(kept);
+    }
+
+    @Test
+    void shouldIgnoreGitIgnoreFilesWhenDisabled(@TempDir Path tempDir) throws IOException {
+        Files.writeString(tempDir.resolve(".gitignore"), "*.java\n");
+        Path javaFile = write(tempDir.resolve("Test.java"));
+
+        FileDiscovery discovery = new FileDiscovery(Set.of(), false, List.of(), List.of());
+        List<Path> discovered = discovery.discover(List.of(tempDir));
+
+        assertThat(discovered).containsExactly(javaFile);
+    }
+
+    @Test
+    void shouldFilterByIncludeAndExcludeGlobs(@TempDir Path tempDir) throws IOException {
+        Path test = write(tempDir.resolve("src/test/FooTest.java"));
+        write(tempDir.resolve("src/main/Foo.java"));
+        write(tempDir.resolve("src/test/fixtures/BarTest.java"));
+        write(tempDir.resolve("src/test/data.table"));
+
+        FileDiscovery discovery = new FileDiscovery(
+                Set.of(), true, List.of("**/*Test.java", "**.table"), List.of("**/fixtures/**", "**/data.table"));
+        List<Path> discovered = discovery.discover(List.of(tempDir));
+
+        assertThat(discovered).containsExactly(test);
+    }
+
+    @Test
+    void shouldMatchGlobsAgainstPathAsGiven(@TempDir Path tempDir) throws IOException {
+        Path explicit = write(tempDir.resolve("gen/Explicit.java"));
+
+        FileDiscovery discovery = new FileDiscovery(Set.of(), true, List.of(), List.of("**/gen/*.java"));
+
+        assertThat(discovery.discover(List.of(explicit))).isEmpty();
+        assertThat(discovery.discover(List.of(tempDir))).isEmpty();
+    }
+
+    private static Path write(Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, "data");
+        return file;
+    }
 }
@@ -2,10 +2,15 @@ package org.tabletest.formatter.cli;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
+import org.tabletest.formatter.config.EditorConfigProvider;
+import org.tabletest.formatter.core.LineRange;
 
 import java.io.IOException;
+import java.io.StringWriter;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -159,4 +164,140 @@ class FileFormatterTest {
                                 }
                                 """);
     }
+
+    @Test
+    void shouldStreamLargeTableFileToTemporaryFile(@TempDir Path tempDir) throws IOException {
+        Path tableFile = tempDir.resolve("test.table");
+        Files.writeString(tableFile, """
+                name|age
+                // comment
+                Alice|30
+
+                Bob|4
+                """);
+
+        FormattingResult result = new FileFormatter(0).format(tableFile);
+
+        assertThat(result.changed()).isTrue();
+        assertThat(result.isStreamed()).isTrue();
+        assertThat(result.formattedContent()).isNull();
+        assertThat(result.formattedFile()).hasParent(tempDir);
+        assertThat(result.formattedFile()).hasContent("""
+                name  | age
+                // comment
+                Alice | 30
+
+                Bob   | 4
+                """);
+    }
+
+    @Test
+    void shouldNotLeaveTemporaryFileWhenLargeTableFileUnchanged(@TempDir Path tempDir) throws IOException {
+        Path tableFile = tempDir.resolve("test.table");
+        Files.writeString(tableFile, """
+                name  | age
+                Alice | 30
+                """);
+
+        FormattingResult result = new FileFormatter(0).format(tableFile);
+
+        assertThat(result.changed()).isFalse();
+        assertThat(result.isStreamed()).isFalse();
+        try (var files = Files.list(tempDir)) {
+            assertThat(files).containsExactly(tableFile);
+        }
+    }
+
+    @Test
+    void shouldCheckLargeTableFileWithoutWritingCopy(@TempDir Path tempDir) throws IOException {
+        Path tableFile = tempDir.resolve("test.table");
+        Files.writeString(tableFile, """
+                name|age
+                Alice|30
+                """);
+
+        FormattingResult result = new FileFormatter(0).check(tableFile);
+
+        assertThat(result.changed()).isTrue();
+        assertThat(result.isStreamed()).isFalse();
+        try (var files = Files.list(tempDir)) {
+            assertThat(files).containsExactly(tableFile);
+        }
+    }
+
+    @Test
+    void shouldFormatOnlyTablesOnChangedLines(@TempDir Path tempDir) {
+        Path javaFile = tempDir.resolve("Test.java");
+        String unformatted = """
+                class Test {
+                    @TableTest({"legacy|table"})
+                    void legacy() {}
+
+                    @TableTest({"name|age", "Alice|30"})
+                    void edited() {}
+                }
+                """;
+
+        FormattingResult result = formatter.format(javaFile, unformatted, List.of(new LineRange(5, 5)));
+
+        assertThat(result.changed()).isTrue();
+        assertThat(result.formattedContent()).contains("\"legacy|table\"");
+        assertThat(result.formattedContent()).contains("\"Alice | 30 \"");
+    }
+
+    @Test
+    void shouldFormatTableFileWholeOnlyIfAnyLineChanged(@TempDir Path tempDir) {
+        Path tableFile = tempDir.resolve("test.table");
+        String unformatted = "name|age\nAlice|30\n";
+
+        assertThat(formatter.format(tableFile, unformatted, List.of()).changed())
+                .isFalse();
+        assertThat(formatter
+                        .format(tableFile, unformatted, List.of(new LineRange(2, 2)))
+                        .formattedContent())
+                .isEqualTo("name  | age\nAlice | 30\n");
+    }
+
+    @Test
+    void shouldWriteFormattedContentWithoutTouchingFile(@TempDir Path tempDir) throws IOException {
+        Path javaFile = tempDir.resolve("Missing.java");
+        StringWriter output = new StringWriter();
+
+        formatter.formatTo(javaFile, """
+                @TableTest(\"""
+                    name|age
+                    Alice|30
+                    \""")
+                """, output);
+
+        assertThat(output).hasToString("""
+                @TableTest(\"""
+                    name  | age
+                    Alice | 30
+                    \""")
+                """);
+        assertThat(javaFile).doesNotExist();
+    }
+
+    @Test
+    void shouldCreateConfigProviderOnlyOnceAFileNeedsConfig(@TempDir Path tempDir) throws IOException {
+        AtomicInteger created = new AtomicInteger();
+        FileFormatter lazyFormatter = new FileFormatter(
+                () -> {
+                    created.incrementAndGet();
+                    return new EditorConfigProvider();
+                },
+                FileFormatter.DEFAULT_STREAMING_THRESHOLD);
+        Path textFile = tempDir.resolve("notes.txt");
+        Files.writeString(textFile, "name|age");
+        Path tableFile = tempDir.resolve("test.table");
+        Files.writeString(tableFile, "name|age");
+
+        lazyFormatter.format(textFile);
+        assertThat(created).hasValue(0);
+
+        lazyFormatter.format(tableFile);
+        lazyFormatter.format(tableFile);
+        assertThat(created).hasValue(1);
+    }
 }
@@ -0,0 +1,87 @@
+package org.tabletest.formatter.cli;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// A missed event would block awaitChanges() forever. On macOS the JDK polls for changes
+// every few seconds, so writes land in batches the debounce cannot predict
+@Timeout(30)
+@DisabledOnOs(OS.MAC)
+class FileWatcherTest {
+
+    private static final Duration DEBOUNCE = Duration.ofMillis(200);
+
+    @Test
+    void shouldReportFilesChangedInDiscoveredDirectories(@TempDir Path tempDir) throws Exception {
+        Path sourceDir = Files.createDirectories(tempDir.resolve("src/main"));
+        Path changed = write(sourceDir.resolve("Changed.java"));
+        write(sourceDir.resolve("Unchanged.java"));
+
+        try (FileWatcher watcher = new FileWatcher(new FileDiscovery(), DEBOUNCE)) {
+            assertThat(discover(watcher, tempDir)).hasSize(2);
+
+            write(changed);
+            write(sourceDir.resolve("notes.txt"));
+            Path created = write(sourceDir.resolve("data.table"));
+
+            assertThat(watcher.awaitChanges()).containsExactly(changed, created);
+        }
+    }
+
+    @Test
+    void shouldWatchNewDirectoriesUnlessDiscoveryWouldSkipThem(@TempDir Path tempDir) throws Exception {
+        Files.writeString(tempDir.resolve("pom.xml"), "<project/>");
+        try (FileWatcher watcher = new FileWatcher(new FileDiscovery(), DEBOUNCE)) {
+            assertThat(discover(watcher, tempDir)).isEmpty();
+
+            write(tempDir.resolve("target/Generated.java"));
+            Path created = write(tempDir.resolve("src/test/NewTest.java"));
+            assertThat(watcher.awaitChanges()).containsExactly(created);
+
+            Path later = write(tempDir.resolve("src/test/LaterTest.java"));
+            assertThat(watcher.awaitChanges()).containsExactly(later);
+        }
+    }
+
+    @Test
+    void shouldIgnoreRecordedWrites(@TempDir Path tempDir) throws Exception {
+        Path formatted = write(tempDir.resolve("Formatted.java"));
+        Path edited = write(tempDir.resolve("Edited.java"));
+
+        try (FileWatcher watcher = new FileWatcher(new FileDiscovery(), DEBOUNCE)) {
+            discover(watcher, tempDir);
+
+            write(formatted);
+            watcher.recordWrite(formatted);
+            write(edited);
+            assertThat(watcher.awaitChanges()).containsExactly(edited);
+
+            Files.writeString(formatted, "edited after formatting");
+            assertThat(watcher.awaitChanges()).containsExactly(formatted);
+        }
+    }
+
+    private static List<Path> discover(FileWatcher watcher, Path directory) {
+        try (Stream<Path> files = watcher.discover(List.of(directory))) {
+            return files.toList();
+        }
+    }
+
+    private static Path write(Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, "data " + System.nanoTime());
+        return file;
+    }
+}
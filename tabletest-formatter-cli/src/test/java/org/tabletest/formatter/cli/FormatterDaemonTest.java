@@ -0,0 +1,193 @@
+package org.tabletest.formatter.cli;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.OptionalInt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FormatterDaemonTest {
+
+    @Test
+    void shouldFormatForClientInItsWorkingDirectory(@TempDir Path tempDir) throws Exception {
+        // Given: a daemon, and an unformatted file in the client's working directory
+        Path socket = tempDir.resolve("daemon.sock");
+        Path testFile = tempDir.resolve("SimpleTest.java");
+        Files.writeString(testFile, readTestFile("cli-test-data/unformatted/SimpleTest.java"));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ByteArrayOutputStream errors = new ByteArrayOutputStream();
+
+        // When: a client has the daemon format the file by its relative path
+        OptionalInt exitCode;
+        try (FormatterDaemon daemon = FormatterDaemon.bind(socket, new FileFormatter(), Duration.ofMinutes(1))) {
+            Thread serving = new Thread(() -> serve(daemon));
+            serving.start();
+            exitCode = new DaemonClient(socket, false)
+                    .run(List.of("SimpleTest.java"), tempDir, output, new PrintStream(errors, true));
+            daemon.close();
+            serving.join();
+        }
+
+        // Then: the file is formatted and the daemon's output reaches the client
+        assertThat(exitCode).hasValue(0);
+        assertThat(Files.readString(testFile)).isEqualTo(readTestFile("cli-test-data/formatted/SimpleTest.java"));
+        assertThat(output.toString(StandardCharsets.UTF_8)).contains("Formatted 1 files");
+        assertThat(errors.toString(StandardCharsets.UTF_8)).isEmpty();
+        assertThat(socket).doesNotExist();
+    }
+
+    @Test
+    void shouldStopWhenIdle(@TempDir Path tempDir) throws Exception {
+        Path socket = tempDir.resolve("daemon.sock");
+
+        try (FormatterDaemon daemon = FormatterDaemon.bind(socket, new FileFormatter(), Duration.ofMillis(50))) {
+            daemon.serve();
+        }
+
+        assertThat(socket).doesNotExist();
+    }
+
+    @Test
+    void shouldRefuseSocketAnotherDaemonListensOn(@TempDir Path tempDir) throws IOException {
+        Path socket = tempDir.resolve("daemon.sock");
+
+        try (FormatterDaemon daemon = FormatterDaemon.bind(socket, new FileFormatter(), Duration.ofMinutes(1))) {
+            assertThatThrownBy(() -> FormatterDaemon.bind(socket, new FileFormatter(), Duration.ofMinutes(1)))
+                    .isInstanceOf(IOException.class)
+                    .hasMessageContaining("already listening");
+        }
+    }
+
+    @Test
+    void shouldLeaveRunToCallerWithoutDaemon(@TempDir Path tempDir) {
+        OptionalInt exitCode = new DaemonClient(tempDir.resolve("none.sock"), false)
+                .run(List.of("--check", "."), tempDir, new ByteArrayOutputStream(), System.err);
+
+        assertThat(exitCode).isEmpty();
+    }
+
+    @Test
+    void shouldRepeatRunInProcessOnlyIfDroppedBeforeOutput(@TempDir Path tempDir) throws Exception {
+        Path socket = tempDir.resolve("daemon.sock");
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ByteArrayOutputStream errors = new ByteArrayOutputStream();
+
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(UnixDomainSocketAddress.of(socket));
+            Thread dropping = new Thread(() -> dropRuns(server, "Checked 1 files\n"));
+            dropping.start();
+
+            OptionalInt droppedBeforeOutput =
+                    new DaemonClient(socket, false).run(List.of("."), tempDir, output, new PrintStream(errors, true));
+            OptionalInt droppedAfterOutput =
+                    new DaemonClient(socket, false).run(List.of("."), tempDir, output, new PrintStream(errors, true));
+            dropping.join();
+
+            assertThat(droppedBeforeOutput).isEmpty();
+            assertThat(droppedAfterOutput).hasValue(1);
+        }
+        assertThat(output.toString(StandardCharsets.UTF_8)).isEqualTo("Checked 1 files\n");
+        assertThat(errors.toString(StandardCharsets.UTF_8))
+                .contains("formatting in-process")
+                .contains("Error: lost connection to daemon");
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void shouldOnlyUseSocketDirectoryPrivateToUser(@TempDir Path tempDir) throws IOException {
+        Path created = DaemonClient.requirePrivateDirectory(tempDir.resolve("created"));
+        Path shared = Files.createDirectory(
+                tempDir.resolve("shared"),
+                PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwxr-xr-x")));
+        Path linked = Files.createSymbolicLink(tempDir.resolve("linked"), created);
+
+        assertThat(Files.getPosixFilePermissions(created)).isEqualTo(PosixFilePermissions.fromString("rwx------"));
+        assertThat(DaemonClient.requirePrivateDirectory(created)).isEqualTo(created);
+        assertThatThrownBy(() -> DaemonClient.requirePrivateDirectory(shared))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("accessible to other users");
+        assertThatThrownBy(() -> DaemonClient.requirePrivateDirectory(linked))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("not a directory");
+    }
+
+    @Test
+    void shouldNotForwardRunsTheDaemonCannotServe() {
+        assertThat(DaemonClient.canForward(List.of("--check", "src"))).isTrue();
+        assertThat(DaemonClient.canForward(List.of("--files-from", "-"))).isFalse();
+        assertThat(DaemonClient.canForward(List.of("--files-from=-"))).isFalse();
+        assertThat(DaemonClient.canForward(List.of("--files-from", "changed.txt")))
+                .isTrue();
+        assertThat(DaemonClient.canForward(List.of("--watch", "src"))).isFalse();
+        assertThat(DaemonClient.canForward(List.of("--checkpoint"))).isFalse();
+        assertThat(DaemonClient.canForward(List.of("--stdin-filepath", "Foo.java")))
+                .isFalse();
+    }
+
+    private static void serve(FormatterDaemon daemon) {
+        try {
+            daemon.serve();
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Accepts two runs and drops them, the first before sending anything and the second
+     * after sending output.
+     */
+    private static void dropRuns(ServerSocketChannel server, String output) {
+        try {
+            try (SocketChannel client = server.accept()) {
+                readRun(client);
+            }
+            try (SocketChannel client = server.accept()) {
+                readRun(client);
+                DataOutputStream frames = new DataOutputStream(Channels.newOutputStream(client));
+                byte[] bytes = output.getBytes(StandardCharsets.UTF_8);
+                frames.writeByte(FormatterDaemon.STDOUT);
+                frames.writeInt(bytes.length);
+                frames.write(bytes);
+                frames.flush();
+            }
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static void readRun(SocketChannel client) throws IOException {
+        DataInputStream request = new DataInputStream(Channels.newInputStream(client));
+        request.readUTF();
+        for (int args = request.readInt(); args > 0; args--) {
+            request.readUTF();
+        }
+    }
+
+    private String readTestFile(String path) throws IOException {
+        try (InputStream stream = getClass().getClassLoader().getResourceAsStream(path)) {
+            return new String(Objects.requireNonNull(stream).readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
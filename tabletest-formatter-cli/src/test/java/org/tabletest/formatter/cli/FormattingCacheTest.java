@@ -0,0 +1,194 @@
+package org.tabletest.formatter.cli;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.tabletest.formatter.config.Config;
+import org.tabletest.formatter.config.IndentStyle;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FormattingCacheTest {
+
+    @Test
+    void shouldTrustUnchangedTimestampOnlyOutsideRacyWindow(@TempDir Path tempDir) throws IOException {
+        Path cacheDir = tempDir.resolve("cache");
+        Path recent = write(tempDir.resolve("Recent.java"), "class Recent {}");
+        Path old = write(tempDir.resolve("Old.java"), "class Old {}");
+        Files.setLastModifiedTime(old, FileTime.from(Instant.now().minus(1, ChronoUnit.HOURS)));
+
+        try (FormattingCache cache = FormattingCache.open(cacheDir, "1.0")) {
+            cache.recordFormatted(recent, "class Recent {}", Config.SPACES_4);
+            cache.recordFormatted(old, "class Old {}", Config.SPACES_4);
+
+            assertThat(cache.isFormatted(recent, attributes(recent), Config.SPACES_4))
+                    .isFalse();
+            assertThat(cache.isFormatted(recent, "class Recent {}", Config.SPACES_4))
+                    .isTrue();
+            assertThat(cache.isFormatted(old, attributes(old), Config.SPACES_4)).isTrue();
+        }
+    }
+
+    @Test
+    void shouldNotTrustChangedFilesOrConfig(@TempDir Path tempDir) throws IOException {
+        Path file = write(tempDir.resolve("Test.java"), "class Test {}");
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().minus(1, ChronoUnit.HOURS)));
+        Config tabs = new Config(IndentStyle.TAB, 1);
+
+        try (FormattingCache cache = FormattingCache.open(tempDir.resolve("cache"), "1.0")) {
+            cache.recordFormatted(file, "class Test {}", Config.SPACES_4);
+            write(file, "class Test { }");
+
+            assertThat(cache.isFormatted(file, attributes(file), Config.SPACES_4))
+                    .isFalse();
+            assertThat(cache.isFormatted(file, "class Test { }", Config.SPACES_4))
+                    .isFalse();
+            assertThat(cache.isFormatted(file, "class Test {}", tabs)).isFalse();
+            assertThat(cache.isFormatted(tempDir.resolve("Other.java"), "class Test {}", Config.SPACES_4))
+                    .isFalse();
+        }
+    }
+
+    @Test
+    void shouldNotTrustFileEditedAfterItWasStamped(@TempDir Path tempDir) throws IOException {
+        Path file = write(tempDir.resolve("Test.java"), "class Test {}");
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().minus(1, ChronoUnit.HOURS)));
+
+        try (FormattingCache cache = FormattingCache.open(tempDir.resolve("cache"), "1.0")) {
+            FormattingCache.FileStamp stamp = FormattingCache.FileStamp.read(file);
+            write(file, "class Test { }");
+            Files.setLastModifiedTime(file, FileTime.from(Instant.now().minus(30, ChronoUnit.MINUTES)));
+            cache.recordFormatted(file, stamp, "class Test {}", Config.SPACES_4);
+
+            assertThat(cache.isFormatted(file, attributes(file), Config.SPACES_4))
+                    .isFalse();
+            assertThat(cache.isFormatted(file, "class Test { }", Config.SPACES_4))
+                    .isFalse();
+        }
+    }
+
+    @Test
+    void shouldForgetFiles(@TempDir Path tempDir) throws IOException {
+        Path file = write(tempDir.resolve("Test.java"), "class Test {}");
+
+        try (FormattingCache cache = FormattingCache.open(tempDir.resolve("cache"), "1.0")) {
+            cache.recordFormatted(file, "class Test {}", Config.SPACES_4);
+            cache.forget(file);
+
+            assertThat(cache.isFormatted(file, "class Test {}", Config.SPACES_4))
+                    .isFalse();
+        }
+    }
+
+    @Test
+    void shouldPersistAcrossRunsOfTheSameVersion(@TempDir Path tempDir) throws IOException {
+        Path cacheDir = tempDir.resolve("cache");
+        Path file = write(tempDir.resolve("Test.java"), "class Test {}");
+
+        try (FormattingCache cache = FormattingCache.open(cacheDir, "1.0")) {
+            cache.recordFormatted(file, "class Test {}", Config.SPACES_4);
+        }
+        try (FormattingCache cache = FormattingCache.open(cacheDir, "1.0")) {
+            assertThat(cache.isFormatted(file, "class Test {}", Config.SPACES_4))
+                    .isTrue();
+        }
+        try (FormattingCache cache = FormattingCache.open(cacheDir, "1.1")) {
+            assertThat(cache.isFormatted(file, "class Test {}", Config.SPACES_4))
+                    .isFalse();
+        }
+        assertThat(cacheDir.resolve(".gitignore")).hasContent("*");
+    }
+
+    @Test
+    void shouldStartAfreshFromDamagedIndex(@TempDir Path tempDir) throws IOException {
+        Path cacheDir = Files.createDirectories(tempDir.resolve("cache"));
+        Files.writeString(cacheDir.resolve("index.bin"), "not an index");
+        Path file = write(tempDir.resolve("Test.java"), "class Test {}");
+
+        try (FormattingCache cache = FormattingCache.open(cacheDir, "1.0")) {
+            assertThat(cache.isFormatted(file, "class Test {}", Config.SPACES_4))
+                    .isFalse();
+            cache.recordFormatted(file, "class Test {}", Config.SPACES_4);
+            assertThat(cache.isFormatted(file, "class Test {}", Config.SPACES_4))
+                    .isTrue();
+        }
+    }
+
+    @Test
+    void shouldKeepEntriesWhenGrowing(@TempDir Path tempDir) throws IOException {
+        Path cacheDir = tempDir.resolve("cache");
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < 1500; i++) {
+            files.add(write(tempDir.resolve("Test" + i + ".java"), "class Test" + i + " {}"));
+        }
+
+        try (FormattingCache cache = FormattingCache.open(cacheDir, "1.0")) {
+            for (int i = 0; i < files.size(); i++) {
+                cache.recordFormatted(files.get(i), "class Test" + i + " {}", Config.SPACES_4);
+            }
+        }
+        try (FormattingCache cache = FormattingCache.open(cacheDir, "1.0")) {
+            for (int i = 0; i < files.size(); i++) {
+                assertThat(cache.isFormatted(files.get(i), "class Test" + i + " {}", Config.SPACES_4))
+                        .isTrue();
+            }
+        }
+    }
+
+    @Test
+    void shouldClearGrownIndexOfAnotherVersionWithoutShrinkingIt(@TempDir Path tempDir) throws IOException {
+        Path cacheDir = tempDir.resolve("cache");
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < 1500; i++) {
+            files.add(write(tempDir.resolve("Test" + i + ".java"), "class Test" + i + " {}"));
+        }
+        try (FormattingCache cache = FormattingCache.open(cacheDir, "1.0")) {
+            for (int i = 0; i < files.size(); i++) {
+                cache.recordFormatted(files.get(i), "class Test" + i + " {}", Config.SPACES_4);
+            }
+        }
+        long grownSize = Files.size(cacheDir.resolve("index.bin"));
+
+        try (FormattingCache cache = FormattingCache.open(cacheDir, "1.1")) {
+            assertThat(cache.isFormatted(files.get(0), "class Test0 {}", Config.SPACES_4))
+                    .isFalse();
+            cache.recordFormatted(files.get(1), "class Test1 {}", Config.SPACES_4);
+        }
+        try (FormattingCache cache = FormattingCache.open(cacheDir, "1.1")) {
+            assertThat(cache.isFormatted(files.get(1), "class Test1 {}", Config.SPACES_4))
+                    .isTrue();
+            assertThat(cache.isFormatted(files.get(2), "class Test2 {}", Config.SPACES_4))
+                    .isFalse();
+        }
+        assertThat(Files.size(cacheDir.resolve("index.bin"))).isEqualTo(grownSize);
+    }
+
+    @Test
+    void shouldRefuseCacheInUse(@TempDir Path tempDir) throws IOException {
+        Path cacheDir = tempDir.resolve("cache");
+
+        try (FormattingCache cache = FormattingCache.open(cacheDir, "1.0")) {
+            assertThatThrownBy(() -> FormattingCache.open(cacheDir, "1.0"))
+                    .isInstanceOf(IOException.class)
+                    .hasMessageContaining("in use");
+        }
+    }
+
+    private static Path write(Path file, String content) throws IOException {
+        return Files.writeString(file, content);
+    }
+
+    private static BasicFileAttributes attributes(Path file) throws IOException {
+        return Files.readAttributes(file, BasicFileAttributes.class);
+    }
+}
@@ -0,0 +1,83 @@
+package org.tabletest.formatter.cli;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.tabletest.formatter.cli.GitIgnore.Verdict.IGNORED;
+import static org.tabletest.formatter.cli.GitIgnore.Verdict.NOT_IGNORED;
+import static org.tabletest.formatter.cli.GitIgnore.Verdict.NO_MATCH;
+
+class GitIgnoreTest {
+
+    @Test
+    void shouldMatchNamesAtAnyDepthUnlessAnchored() {
+        GitIgnore gitIgnore = GitIgnore.parse(List.of("generated", "/out", "docs/api"));
+
+        assertThat(match(gitIgnore, "generated", false)).isEqualTo(IGNORED);
+        assertThat(match(gitIgnore, "src/main/generated", true)).isEqualTo(IGNORED);
+        assertThat(match(gitIgnore, "out", true)).isEqualTo(IGNORED);
+        assertThat(match(gitIgnore, "src/out", true)).isEqualTo(NO_MATCH);
+        assertThat(match(gitIgnore, "docs/api", true)).isEqualTo(IGNORED);
+        assertThat(match(gitIgnore, "src/docs/api", true)).isEqualTo(NO_MATCH);
+    }
+
+    @Test
+    void shouldMatchWildcards() {
+        GitIgnore gitIgnore = GitIgnore.parse(List.of("*.gen.java", "Test?.kt", "[ab]*.table", "src/*/tmp"));
+
+        assertThat(match(gitIgnore, "src/Foo.gen.java", false)).isEqualTo(IGNORED);
+        assertThat(match(gitIgnore, "src/Foo.java", false)).isEqualTo(NO_MATCH);
+        assertThat(match(gitIgnore, "Test1.kt", false)).isEqualTo(IGNORED);
+        assertThat(match(gitIgnore, "Test12.kt", false)).isEqualTo(NO_MATCH);
+        assertThat(match(gitIgnore, "alpha.table", false)).isEqualTo(IGNORED);
+        assertThat(match(gitIgnore, "gamma.table", false)).isEqualTo(NO_MATCH);
+        assertThat(match(gitIgnore, "src/main/tmp", true)).isEqualTo(IGNORED);
+        assertThat(match(gitIgnore, "src/main/java/tmp", true)).isEqualTo(NO_MATCH);
+    }
+
+    @Test
+    void shouldMatchDoubleAsterisks() {
+        GitIgnore gitIgnore = GitIgnore.parse(List.of("**/cache", "logs/**", "a/**/z"));
+
+        assertThat(match(gitIgnore, "cache", true)).isEqualTo(IGNORED);
+        assertThat(match(gitIgnore, "x/y/cache", true)).isEqualTo(IGNORED);
+        assertThat(match(gitIgnore, "logs", true)).isEqualTo(NO_MATCH);
+        assertThat(match(gitIgnore, "logs/deep/file.java", false)).isEqualTo(IGNORED);
+        assertThat(match(gitIgnore, "a/z", true)).isEqualTo(IGNORED);
+        assertThat(match(gitIgnore, "a/b/c/z", true)).isEqualTo(IGNORED);
+    }
+
+    @Test
+    void shouldApplyDirectoryOnlyRulesToDirectories() {
+        GitIgnore gitIgnore = GitIgnore.parse(List.of("tmp/"));
+
+        assertThat(match(gitIgnore, "tmp", true)).isEqualTo(IGNORED);
+        assertThat(match(gitIgnore, "tmp", false)).isEqualTo(NO_MATCH);
+    }
+
+    @Test
+    void shouldLetLastMatchingRuleWin() {
+        GitIgnore gitIgnore = GitIgnore.parse(List.of("*.table", "!keep.table", "keep.table.bak"));
+
+        assertThat(match(gitIgnore, "drop.table", false)).isEqualTo(IGNORED);
+        assertThat(match(gitIgnore, "keep.table", false)).isEqualTo(NOT_IGNORED);
+    }
+
+    @Test
+    void shouldSkipCommentsAndBlankLinesAndHonourEscapes() {
+        GitIgnore gitIgnore = GitIgnore.parse(List.of("# comment", "", "   ", "\\#hash", "\\!bang", "space\\ "));
+
+        assertThat(match(gitIgnore, "comment", false)).isEqualTo(NO_MATCH);
+        assertThat(match(gitIgnore, "#hash", false)).isEqualTo(IGNORED);
+        assertThat(match(gitIgnore, "!bang", false)).isEqualTo(IGNORED);
+        assertThat(match(gitIgnore, "space ", false)).isEqualTo(IGNORED);
+        assertThat(GitIgnore.parse(List.of("# only comments")).isEmpty()).isTrue();
+    }
+
+    private static GitIgnore.Verdict match(GitIgnore gitIgnore, String relativePath, boolean directory) {
+        String name = relativePath.substring(relativePath.lastIndexOf('/') + 1);
+        return gitIgnore.match(relativePath, name, directory);
+    }
+}
@@ -0,0 +1,78 @@
+package org.tabletest.formatter.cli;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RunStatisticsTest {
+
+    @Test
+    void shouldCountDataRowsAndCellsOfParsedTables() {
+        RunStatistics statistics = RunStatistics.start(2);
+        String source = """
+                class Test {
+                    @TableTest(\"""
+                        // Comment before the header
+                        a | b      | c
+                        1 | [x, y] | "p|q"
+
+                        // Comment between rows
+                        2 | {k}    | 'r|s'
+                        \""")
+                    void text() {}
+
+                    @TableTest({
+                        "a | b",
+                        // "1 | commented out",
+                        "2 | 'x|y'",
+                        "5 | 6"
+                    })
+                    void array() {}
+                }
+                """;
+
+        new FileFormatter().format(Path.of("Test.java"), source, null, statistics);
+        statistics.finish();
+
+        assertThat(statistics.toJson())
+                .contains("\"tables\":2,\"rows\":4,\"cells\":10,")
+                .containsPattern("\"slowestTables\":\\[\\{\"file\":\"Test.java\",\"offset\":\\d+,\"nanos\":\\d+,");
+    }
+
+    @Test
+    void shouldReportSlowestFilesFirstUpToLimit() {
+        RunStatistics statistics = RunStatistics.start(2);
+
+        for (String name : new String[] {"A.java", "B.java", "C.java"}) {
+            Path file = Path.of(name);
+            RunStatistics.Timer timer = statistics.start(RunStatistics.Phase.FORMATTING, file);
+            busyWait(name.equals("B.java") ? 20_000_000 : name.equals("C.java") ? 10_000_000 : 0);
+            timer.stop();
+            statistics.recordFile(file);
+        }
+        statistics.finish();
+
+        assertThat(statistics.toJson())
+                .contains("\"files\":3,")
+                .containsPattern("\"slowestFiles\":\\[\\{\"file\":\"B.java\",\"nanos\":\\d+},"
+                        + "\\{\"file\":\"C.java\",\"nanos\":\\d+}]");
+    }
+
+    @Test
+    void shouldRecordNothingWhenDisabled() {
+        RunStatistics statistics = RunStatistics.disabled();
+
+        assertThat(statistics.start(RunStatistics.Phase.READ, Path.of("A.java")).stop())
+                .isZero();
+        assertThat(statistics.isEnabled()).isFalse();
+    }
+
+    private static void busyWait(long nanos) {
+        long end = System.nanoTime() + nanos;
+        while (System.nanoTime() < end) {
+            Thread.onSpinWait();
+        }
+    }
+}
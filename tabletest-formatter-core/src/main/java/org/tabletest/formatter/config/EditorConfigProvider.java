@@ -15,16 +15,25 @@
  */
 package org.tabletest.formatter.config;
 
-import org.ec4j.core.Cache.Caches;
+import org.ec4j.core.Cache;
+import org.ec4j.core.EditorConfigLoader;
+import org.ec4j.core.Resource;
 import org.ec4j.core.Resource.Resources;
 import org.ec4j.core.ResourceProperties;
 import org.ec4j.core.ResourcePropertiesService;
+import org.ec4j.core.model.EditorConfig;
 import org.ec4j.core.model.Property;
 import org.ec4j.core.model.PropertyType;
 
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Service for looking up formatting configuration from .editorconfig files.
@@ -76,8 +85,89 @@ public final class EditorConfigProvider {
      * Create one instance and reuse it across multiple lookups for best performance.
      */
     public EditorConfigProvider() {
-        this.service =
-                ResourcePropertiesService.builder().cache(Caches.permanent()).build();
+        this(new ConcurrentPermanentCache());
+    }
+
+    private EditorConfigProvider(Cache cache) {
+        this.service = ResourcePropertiesService.builder().cache(cache).build();
+    }
+
+    /**
+     * Creates a lookup service for long-running processes, such as a formatter daemon.
+     *
+     * <p>Parsed .editorconfig files are cached like with {@link #EditorConfigProvider()},
+     * but each lookup checks the file's size and modification time and parses it again
+     * if it was edited since.
+     *
+     * @return a new service whose cache follows edits to .editorconfig files
+     */
+    public static EditorConfigProvider revalidating() {
+        return new EditorConfigProvider(new RevalidatingCache());
+    }
+
+    /**
+     * Keeps every parsed .editorconfig for the lifetime of the service, like ec4j's
+     * {@code Caches.permanent()}, but safe for concurrent lookups: that one is backed by
+     * a plain {@code HashMap}. Two threads may both parse the same file on a miss; the
+     * results are equal, so whichever is stored last wins harmlessly.
+     */
+    private static final class ConcurrentPermanentCache implements Cache {
+
+        private final Map<Resource, EditorConfig> entries = new ConcurrentHashMap<>();
+
+        @Override
+        public EditorConfig get(Resource resource, EditorConfigLoader loader) throws IOException {
+            EditorConfig editorConfig = entries.get(resource);
+            if (editorConfig == null) {
+                editorConfig = loader.load(resource);
+                if (editorConfig != null) {
+                    entries.put(resource, editorConfig);
+                }
+            }
+            return editorConfig;
+        }
+    }
+
+    /**
+     * Like {@link ConcurrentPermanentCache}, but drops an entry once its file's size or
+     * modification time changes, at the cost of one stat per cached file and lookup.
+     */
+    private static final class RevalidatingCache implements Cache {
+
+        private final Map<Resource, Entry> entries = new ConcurrentHashMap<>();
+
+        private record Entry(EditorConfig editorConfig, long size, FileTime modified) {}
+
+        @Override
+        public EditorConfig get(Resource resource, EditorConfigLoader loader) throws IOException {
+            Path path = resource.getPath().getAdapter(Path.class);
+            if (path == null) {
+                // Not a file on disk, so it cannot change
+                Entry entry = entries.get(resource);
+                return entry != null ? entry.editorConfig() : load(resource, loader, null);
+            }
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            Entry entry = entries.get(resource);
+            if (entry != null
+                    && entry.size() == attributes.size()
+                    && entry.modified().equals(attributes.lastModifiedTime())) {
+                return entry.editorConfig();
+            }
+            return load(resource, loader, attributes);
+        }
+
+        private EditorConfig load(Resource resource, EditorConfigLoader loader, BasicFileAttributes attributes)
+                throws IOException {
+            EditorConfig editorConfig = loader.load(resource);
+            if (editorConfig != null) {
+                entries.put(
+                        resource,
+                        attributes == null
+                                ? new Entry(editorConfig, -1, FileTime.fromMillis(0))
+                                : new Entry(editorConfig, attributes.size(), attributes.lastModifiedTime()));
+            }
+            return editorConfig;
+        }
     }
 
     /**
@@ -15,41 +15,101 @@
  */
 package org.tabletest.formatter.core;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-import static java.util.stream.Collectors.joining;
-
 /**
  * Formats cell values for display in TableTest tables.
  *
  * <p>Converts various object types (primitives, collections, maps) to their
  * string representation according to TableTest formatting conventions.
+ *
+ * <p>Cells can also be measured without being rendered: the display width of a
+ * collection is the sum of its elements' widths plus the widths of the brackets,
+ * separators and map colons, so no intermediate string is built.
  */
 class CellFormatter {
 
-    String formatCell(Object cell) {
-        if (cell == null) return "";
-        if (cell instanceof List<?> list) return formatList(list);
-        if (cell instanceof Set<?> set) return formatSet(set);
-        if (cell instanceof Map<?, ?> map) return formatMap(map);
-        return cell.toString();
+    private static final String ELEMENT_SEPARATOR = ", ";
+    private static final String KEY_SEPARATOR = ": ";
+    private static final String EMPTY_MAP = "[:]";
+
+    void appendCell(StringBuilder out, Object cell) {
+        if (cell == null) return;
+        if (cell instanceof List<?> list) appendList(out, list);
+        else if (cell instanceof Set<?> set) appendSet(out, set);
+        else if (cell instanceof Map<?, ?> map) appendMap(out, map);
+        else out.append(cell);
+    }
+
+    /**
+     * Calculates the display width the cell would have once formatted, without formatting it.
+     */
+    int cellWidth(Object cell) {
+        if (cell == null) return 0;
+        if (cell instanceof List<?> list) return elementsWidth(list);
+        if (cell instanceof Set<?> set) return elementsWidth(set);
+        if (cell instanceof Map<?, ?> map) return mapWidth(map);
+        return DisplayWidth.of(cell.toString());
+    }
+
+    private void appendList(StringBuilder out, List<?> list) {
+        appendElements(out, list, '[', ']');
+    }
+
+    private void appendSet(StringBuilder out, Set<?> set) {
+        appendElements(out, set, '{', '}');
+    }
+
+    private void appendElements(StringBuilder out, Collection<?> elements, char open, char close) {
+        out.append(open);
+        boolean first = true;
+        for (Object element : elements) {
+            if (!first) out.append(ELEMENT_SEPARATOR);
+            appendCell(out, element);
+            first = false;
+        }
+        out.append(close);
+    }
+
+    private void appendMap(StringBuilder out, Map<?, ?> map) {
+        if (map.isEmpty()) {
+            out.append(EMPTY_MAP);
+            return;
+        }
+        out.append('[');
+        boolean first = true;
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            if (!first) out.append(ELEMENT_SEPARATOR);
+            out.append(entry.getKey()).append(KEY_SEPARATOR);
+            appendCell(out, entry.getValue());
+            first = false;
+        }
+        out.append(']');
     }
 
-    private String formatList(List<?> list) {
-        return list.isEmpty() ? "[]" : list.stream().map(this::formatCell).collect(joining(", ", "[", "]"));
+    private int elementsWidth(Collection<?> elements) {
+        // Opening and closing bracket, then each element and the separators between them
+        int width = 2;
+        for (Object element : elements) {
+            width += cellWidth(element);
+        }
+        return width + separatorsWidth(elements.size());
     }
 
-    private String formatSet(Set<?> set) {
-        return set.isEmpty() ? "{}" : set.stream().map(this::formatCell).collect(joining(", ", "{", "}"));
+    private int mapWidth(Map<?, ?> map) {
+        if (map.isEmpty()) return EMPTY_MAP.length();
+        int width = 2;
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            width += DisplayWidth.of(String.valueOf(entry.getKey())) + KEY_SEPARATOR.length();
+            width += cellWidth(entry.getValue());
+        }
+        return width + separatorsWidth(map.size());
     }
 
-    private String formatMap(Map<?, ?> map) {
-        return map.isEmpty()
-                ? "[:]"
-                : map.entrySet().stream()
-                        .map(entry -> entry.getKey() + ": " + formatCell(entry.getValue()))
-                        .collect(joining(", ", "[", "]"));
+    private int separatorsWidth(int elementCount) {
+        return elementCount > 1 ? (elementCount - 1) * ELEMENT_SEPARATOR.length() : 0;
     }
 }
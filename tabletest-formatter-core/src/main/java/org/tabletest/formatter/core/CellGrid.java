@@ -0,0 +1,114 @@
+/*
+ * Copyright 2025-present Nils Christian Haugen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tabletest.formatter.core;
+
+import org.tabletest.parser.Table;
+
+import java.util.List;
+
+/**
+ * The cells of a parsed table, each measured once and rendered once.
+ *
+ * <p>Row 0 holds the header; data rows follow in table order. Cell widths are
+ * measured up front without rendering, and column widths are derived from them.
+ * Cells are rendered only when written to the output, so neither measuring nor
+ * printing a table builds a cell string a second time.
+ */
+final class CellGrid {
+
+    private final CellFormatter cellFormatter;
+    private final Object[][] cells;
+    private final int[][] widths;
+    private final int[] columnWidths;
+
+    private CellGrid(CellFormatter cellFormatter, Object[][] cells, int[][] widths, int columnCount) {
+        this.cellFormatter = cellFormatter;
+        this.cells = cells;
+        this.widths = widths;
+        this.columnWidths = new int[columnCount];
+        for (int[] rowWidths : widths) {
+            for (int column = 0; column < rowWidths.length; column++) {
+                columnWidths[column] = Math.max(columnWidths[column], rowWidths[column]);
+            }
+        }
+    }
+
+    /**
+     * Measures every cell of the table, header first.
+     */
+    static CellGrid of(Table table, CellFormatter cellFormatter) {
+        int rowCount = table.rows().size() + 1;
+        Object[][] cells = new Object[rowCount][];
+        int[][] widths = new int[rowCount][];
+
+        measureRow(table.headers(), cellFormatter, cells, widths, 0);
+        int rowIndex = 1;
+        for (var row : table.rows()) {
+            measureRow(row.values(), cellFormatter, cells, widths, rowIndex++);
+        }
+        return new CellGrid(cellFormatter, cells, widths, table.columnCount());
+    }
+
+    /**
+     * Measures a single row of cells.
+     */
+    static CellGrid ofRow(List<?> rowCells, CellFormatter cellFormatter) {
+        Object[][] cells = new Object[1][];
+        int[][] widths = new int[1][];
+        measureRow(rowCells, cellFormatter, cells, widths, 0);
+        return new CellGrid(cellFormatter, cells, widths, rowCells.size());
+    }
+
+    private static void measureRow(
+            List<?> rowCells, CellFormatter cellFormatter, Object[][] cells, int[][] widths, int rowIndex) {
+        Object[] row = rowCells.toArray();
+        int[] rowWidths = new int[row.length];
+        for (int column = 0; column < row.length; column++) {
+            rowWidths[column] = cellFormatter.cellWidth(row[column]);
+        }
+        cells[rowIndex] = row;
+        widths[rowIndex] = rowWidths;
+    }
+
+    /**
+     * Number of rows, header included.
+     */
+    int rowCount() {
+        return cells.length;
+    }
+
+    int columnCount(int row) {
+        return cells[row].length;
+    }
+
+    /**
+     * Renders the cell straight into the output.
+     */
+    void appendValue(StringBuilder out, int row, int column) {
+        cellFormatter.appendCell(out, cells[row][column]);
+    }
+
+    int width(int row, int column) {
+        return widths[row][column];
+    }
+
+    /**
+     * The width of the widest cell in each column, header included.
+     */
+    int[] columnWidths() {
+        return columnWidths.clone();
+    }
+}
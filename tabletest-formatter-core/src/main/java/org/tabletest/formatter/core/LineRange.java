@@ -0,0 +1,41 @@
+/*
+ * Copyright 2025-present Nils Christian Haugen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tabletest.formatter.core;
+
+/**
+ * A span of lines in a source file, such as the lines touched by a change.
+ *
+ * <p>Lines are numbered from 1, as in diffs and editors, and both ends are inclusive.
+ *
+ * @param first the first line of the span
+ * @param last  the last line of the span, inclusive
+ */
+public record LineRange(int first, int last) {
+
+    public LineRange {
+        if (first < 1 || last < first) {
+            throw new IllegalArgumentException("Invalid line range: " + first + ".." + last);
+        }
+    }
+
+    /**
+     * Whether this span shares a line with the span from {@code otherFirst} to
+     * {@code otherLast}, inclusive.
+     */
+    boolean overlaps(int otherFirst, int otherLast) {
+        return first <= otherLast && otherFirst <= last;
+    }
+}
@@ -17,14 +17,18 @@ package org.tabletest.formatter.core;
 
 import org.tabletest.formatter.config.Config;
 
+import java.io.IOException;
+import java.nio.CharBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * Formats source files containing @TableTest annotations.
- * Processes matches in reverse order to avoid offset tracking.
+ * Copies the source front to back in one pass, splicing in each formatted table,
+ * so formatting takes time linear in the file size however many tables it holds.
  */
 public class SourceFileFormatter {
 
@@ -47,74 +51,355 @@ public class SourceFileFormatter {
      */
     public String format(String content, Config config) {
         List<TableMatch> matches = extractor.findAll(content);
+        if (matches.isEmpty()) {
+            return content;
+        }
 
-        return matches.isEmpty() ? content : formatMatches(content, matches, config);
+        // Formatting mostly adds padding: leave some room so the buffer rarely grows
+        StringBuilder out = new StringBuilder(content.length() + content.length() / 8);
+        return appendFormatted(content, matches, config, out) ? out.toString() : content;
     }
 
-    private String formatMatches(String content, List<TableMatch> matches, Config config) {
-        return matches.stream()
-                .sorted(Comparator.comparingInt(TableMatch::tableContentStart).reversed())
-                .reduce(content, (result, match) -> formatMatch(result, content, match, config), (s1, s2) -> s1);
+    /**
+     * Formats all TableTest tables found in a source file and appends the result to {@code out}.
+     *
+     * <p>Same result as {@link #format}, written front to back: unchanged source between
+     * tables is copied straight from {@code content}, and tables are formatted straight into
+     * {@code out}. Any character sequence works as input, e.g. a {@link java.nio.CharBuffer}
+     * over a decoded file; each table is copied once, for the table parser.
+     *
+     * @param content the source file content
+     * @param config  the formatting configuration
+     * @param out     the builder to append the formatted content to
+     */
+    public void formatTo(CharSequence content, Config config, StringBuilder out) {
+        Objects.requireNonNull(config, "config must not be null");
+        Objects.requireNonNull(out, "out must not be null");
+
+        appendFormatted(content, extractor.findAll(content), config, out);
     }
 
-    private String formatMatch(String result, String originalContent, TableMatch match, Config config) {
-        return switch (match.matchType()) {
-            case TEXT_BLOCK -> formatTextBlockMatch(result, originalContent, match, config);
-            case STRING_ARRAY -> formatStringArrayMatch(result, originalContent, match, config);
-        };
+    /**
+     * Formats all TableTest tables found in a source file and writes the result to {@code out}.
+     *
+     * <p>Same result as {@link #format}, written front to back: unchanged source between
+     * tables is copied straight from {@code content}, and only the formatted tables are built
+     * in memory. Lets callers write straight to a {@link java.io.Writer} without holding a
+     * second full-size copy of the file.
+     *
+     * @param content the source file content
+     * @param config  the formatting configuration
+     * @param out     the destination to write the formatted content to
+     * @throws IOException if writing to {@code out} fails
+     */
+    public void formatTo(CharSequence content, Config config, Appendable out) throws IOException {
+        Objects.requireNonNull(out, "out must not be null");
+        if (out instanceof StringBuilder builder) {
+            formatTo(content, config, builder);
+            return;
+        }
+        Objects.requireNonNull(config, "config must not be null");
+
+        StringBuilder table = new StringBuilder();
+        int copied = 0;
+        for (TableMatch match : extractor.findAll(content)) {
+            table.setLength(0);
+            if (appendFormattedMatch(content, match, config, table)) {
+                out.append(content, copied, match.tableContentStart()).append(table);
+                copied = match.tableContentEnd();
+            }
+        }
+        out.append(content, copied, content.length());
     }
 
-    private String formatTextBlockMatch(String result, String originalContent, TableMatch match, Config config) {
-        String originalTable = originalContent.substring(match.tableContentStart(), match.tableContentEnd());
-        String baseIndentString = originalContent.substring(match.baseIndentStart(), match.baseIndentEnd());
-        String formattedTable = formatter.format(originalTable, baseIndentString, config);
+    /**
+     * Formats all TableTest tables found in a source file and returns the edits that
+     * turn the content into its formatted form: one per table that changed, sorted by
+     * offset. An empty list means the file is already formatted.
+     *
+     * <p>Lets editors and patch-based tools apply only the changed tables, without
+     * building or comparing the whole formatted file.
+     *
+     * @param content the source file content
+     * @param config  the formatting configuration
+     * @return the edits for the tables that changed, possibly empty
+     */
+    public List<TextEdit> formatEdits(CharSequence content, Config config) {
+        Objects.requireNonNull(config, "config must not be null");
+
+        return formatEdits(content, extractor.findAll(content), config);
+    }
 
-        if (formattedTable.equals(originalTable)) {
-            return result;
+    /**
+     * Formats only the tables that share a line with {@code changedLines}, leaving every
+     * other table as it is, and returns the resulting content.
+     *
+     * <p>Lets a change be formatted without touching tables it did not edit, e.g. legacy
+     * tables elsewhere in the file; a table counts as touched if any line from its first
+     * to its last content line is in a range.
+     *
+     * @param content      the source file content
+     * @param config       the formatting configuration
+     * @param changedLines the lines whose tables to format, in any order
+     * @return the formatted content, or original if no changes needed
+     */
+    public String format(String content, Config config, List<LineRange> changedLines) {
+        List<TableMatch> matches = touching(content, extractor.findAll(content), changedLines);
+        if (matches.isEmpty()) {
+            return content;
         }
 
+        StringBuilder out = new StringBuilder(content.length() + content.length() / 8);
+        return appendFormatted(content, matches, config, out) ? out.toString() : content;
+    }
+
+    /**
+     * Formats only the tables that share a line with {@code changedLines} and returns the
+     * edits for those that changed, as {@link #formatEdits(CharSequence, Config)} does.
+     *
+     * @param content      the source file content
+     * @param config       the formatting configuration
+     * @param changedLines the lines whose tables to format, in any order
+     * @return the edits for the touched tables that changed, possibly empty
+     */
+    public List<TextEdit> formatEdits(CharSequence content, Config config, List<LineRange> changedLines) {
+        Objects.requireNonNull(config, "config must not be null");
+
+        return formatEdits(content, touching(content, extractor.findAll(content), changedLines), config);
+    }
+
+    /**
+     * Finds the TableTest tables in a source file, sorted by offset.
+     *
+     * <p>Together with {@link #formatEdits(CharSequence, List, Config)} this lets callers
+     * look for tables and format them as separate steps, e.g. to time each step or to
+     * format tables one at a time.
+     *
+     * @param content the source file content
+     * @return the tables found, possibly empty
+     */
+    public List<TableMatch> findTables(CharSequence content) {
+        return extractor.findAll(content);
+    }
+
+    /**
+     * Finds the TableTest tables in a source file that share a line with
+     * {@code changedLines}, as {@link #format(String, Config, List)} selects them.
+     *
+     * @param content      the source file content
+     * @param changedLines the lines whose tables to find, in any order
+     * @return the tables touched, sorted by offset, possibly empty
+     */
+    public List<TableMatch> findTables(CharSequence content, List<LineRange> changedLines) {
+        return touching(content, extractor.findAll(content), changedLines);
+    }
+
+    /**
+     * Formats the given tables, as found by {@link #findTables(CharSequence)} in the same
+     * content, and returns the edits for those that changed.
+     *
+     * @param content the source file content
+     * @param matches tables found in {@code content}, sorted by offset
+     * @param config  the formatting configuration
+     * @return the edits for the tables that changed, possibly empty
+     */
+    public List<TextEdit> formatEdits(CharSequence content, List<TableMatch> matches, Config config) {
+        return formatEdits(content, matches, config, TableListener.NONE);
+    }
+
+    /**
+     * Formats the given tables as {@link #formatEdits(CharSequence, List, Config)} does,
+     * telling {@code listener} about each table as it is formatted.
+     *
+     * @param content  the source file content
+     * @param matches  tables found in {@code content}, sorted by offset
+     * @param config   the formatting configuration
+     * @param listener the listener to tell about each table
+     * @return the edits for the tables that changed, possibly empty
+     */
+    public List<TextEdit> formatEdits(
+            CharSequence content, List<TableMatch> matches, Config config, TableListener listener) {
+        Objects.requireNonNull(config, "config must not be null");
+        Objects.requireNonNull(listener, "listener must not be null");
+
+        List<TextEdit> edits = new ArrayList<>();
+        StringBuilder table = new StringBuilder();
+        for (TableMatch match : matches) {
+            table.setLength(0);
+            listener.tableStarted(match.tableContentStart());
+            if (appendFormattedMatch(content, match, config, table, listener)) {
+                edits.add(new TextEdit(match.tableContentStart(), match.tableContentEnd(), table.toString()));
+            }
+            listener.tableFinished();
+        }
+        return List.copyOf(edits);
+    }
+
+    /**
+     * The matches whose content shares a line with one of the ranges. Lines are counted in
+     * one pass over the content, since matches come sorted by offset.
+     */
+    private static List<TableMatch> touching(
+            CharSequence content, List<TableMatch> matches, List<LineRange> changedLines) {
+        if (matches.isEmpty() || changedLines.isEmpty()) {
+            return List.of();
+        }
+        List<LineRange> ranges = new ArrayList<>(changedLines);
+        ranges.sort(Comparator.comparingInt(LineRange::first));
+
+        List<TableMatch> touched = new ArrayList<>();
+        int line = 1;
+        int counted = 0;
+        int range = 0;
+        for (TableMatch match : matches) {
+            line += countLineBreaks(content, counted, match.tableContentStart());
+            int firstLine = line;
+            int lastLine = line + countLineBreaks(content, match.tableContentStart(), match.tableContentEnd() - 1);
+            line = lastLine;
+            counted = Math.max(match.tableContentStart(), match.tableContentEnd() - 1);
+
+            // Ranges ending above this table end above every later one too
+            while (range < ranges.size() && ranges.get(range).last() < firstLine) {
+                range++;
+            }
+            if (range < ranges.size() && ranges.get(range).overlaps(firstLine, lastLine)) {
+                touched.add(match);
+            }
+        }
+        return touched;
+    }
+
+    private static int countLineBreaks(CharSequence content, int start, int end) {
+        int count = 0;
+        for (int i = start; i < end; i++) {
+            if (content.charAt(i) == '\n') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Appends the content with every match formatted, in one pass: unchanged spans and
+     * tables are copied from {@code content}, formatted tables are rendered in place.
+     * Returns whether any table changed.
+     */
+    private boolean appendFormatted(CharSequence content, List<TableMatch> matches, Config config, StringBuilder out) {
+        boolean changed = false;
+        int copied = 0;
+        for (TableMatch match : matches) {
+            out.append(content, copied, match.tableContentStart());
+            if (appendFormattedMatch(content, match, config, out)) {
+                changed = true;
+            } else {
+                out.append(content, match.tableContentStart(), match.tableContentEnd());
+            }
+            copied = match.tableContentEnd();
+        }
+        out.append(content, copied, content.length());
+        return changed;
+    }
+
+    /**
+     * Formats one matched table and appends the text to replace its content with. Returns
+     * false, with {@code out} left as it was, if the table is already formatted or cannot
+     * be formatted.
+     */
+    private boolean appendFormattedMatch(CharSequence content, TableMatch match, Config config, StringBuilder out) {
+        return appendFormattedMatch(content, match, config, out, TableListener.NONE);
+    }
+
+    private boolean appendFormattedMatch(
+            CharSequence content, TableMatch match, Config config, StringBuilder out, TableListener listener) {
+        return switch (match.matchType()) {
+            case TEXT_BLOCK -> appendFormattedTextBlock(content, match, config, out, listener);
+            case STRING_ARRAY -> appendFormattedStringArray(content, match, config, out, listener);
+        };
+    }
+
+    private boolean appendFormattedTextBlock(
+            CharSequence content, TableMatch match, Config config, StringBuilder out, TableListener listener) {
+        int replacementStart = out.length();
         // Ensure at least one newline after the opening quotes ("""): required syntax in Java,
         // better readability in Kotlin. Indented formatting normalises to exactly one newline;
         // without indentation, existing leading newlines pass through unchanged.
-        String replacement = formattedTable.startsWith("\n") ? formattedTable : "\n" + formattedTable;
-        return result.substring(0, match.tableContentStart()) + replacement + result.substring(match.tableContentEnd());
+        out.append('\n');
+        int tableStart = out.length();
+        formatter.formatTo(
+                content,
+                match.tableContentStart(),
+                match.tableContentEnd(),
+                CharBuffer.wrap(content, match.baseIndentStart(), match.baseIndentEnd()),
+                config,
+                out,
+                listener);
+
+        if (regionEquals(out, tableStart, out.length(), content, match.tableContentStart(), match.tableContentEnd())) {
+            out.setLength(replacementStart);
+            return false;
+        }
+        if (tableStart < out.length() && out.charAt(tableStart) == '\n') {
+            out.deleteCharAt(replacementStart);
+        }
+        // The newline may be all that was missing from the formatted table
+        if (regionEquals(
+                out, replacementStart, out.length(), content, match.tableContentStart(), match.tableContentEnd())) {
+            out.setLength(replacementStart);
+            return false;
+        }
+        return true;
     }
 
-    private String formatStringArrayMatch(String result, String originalContent, TableMatch match, Config config) {
-        String arrayContent = originalContent.substring(match.tableContentStart(), match.tableContentEnd());
-        String baseIndentString = originalContent.substring(match.baseIndentStart(), match.baseIndentEnd());
+    private boolean appendFormattedStringArray(
+            CharSequence content, TableMatch match, Config config, StringBuilder out, TableListener listener) {
+        List<StringArrayItem> items =
+                arrayContentParser.parse(content, match.tableContentStart(), match.tableContentEnd());
 
-        List<StringArrayItem> items = arrayContentParser.parse(arrayContent);
-        List<String> entryValues = items.stream()
-                .filter(StringArrayItem.Entry.class::isInstance)
-                .map(item -> ((StringArrayItem.Entry) item).value())
-                .toList();
-        if (entryValues.isEmpty()) {
-            return result;
+        // Join the entries as plain table text, read straight from the source
+        StringBuilder tableText = new StringBuilder();
+        int entryCount = 0;
+        for (StringArrayItem item : items) {
+            if (item instanceof StringArrayItem.Entry entry) {
+                if (entryCount++ > 0) {
+                    tableText.append('\n');
+                }
+                tableText.append(content, entry.start(), entry.end());
+            }
+        }
+        if (entryCount == 0) {
+            return false;
         }
 
         // Format as plain table text using existing formatter logic
-        String tableText = String.join("\n", entryValues);
-        String formattedTable = formatter.format(tableText, "", Config.NO_INDENT);
+        StringBuilder formatted = new StringBuilder();
+        String formattedTable =
+                formatter.appendFormatted(tableText, 0, tableText.length(), "", Config.NO_INDENT, formatted, listener)
+                        ? formatted.toString()
+                        : tableText.toString();
 
         List<String> formattedEntries = splitIntoEntryLines(formattedTable);
-        if (formattedEntries.size() != entryValues.size()) {
+        if (formattedEntries.size() != entryCount) {
             // Graceful degradation: formatted lines no longer map one-to-one onto entries
-            return result;
+            return false;
         }
 
         // Build indented string array
+        CharSequence baseIndent = CharBuffer.wrap(content, match.baseIndentStart(), match.baseIndentEnd());
         String indent = config.indentSize() > 0
-                ? baseIndentString + config.indentStyle().repeat(config.indentSize())
-                : baseIndentString;
+                ? baseIndent + config.indentStyle().repeat(config.indentSize())
+                : baseIndent.toString();
 
-        String formatted = "\n" + renderArrayLines(items, formattedEntries, indent) + "\n" + baseIndentString;
+        int replacementStart = out.length();
+        out.append('\n');
+        appendArrayLines(out, content, items, formattedEntries, indent);
+        out.append('\n').append(baseIndent);
 
-        if (formatted.equals(arrayContent)) {
-            return result;
+        if (regionEquals(
+                out, replacementStart, out.length(), content, match.tableContentStart(), match.tableContentEnd())) {
+            out.setLength(replacementStart);
+            return false;
         }
-
-        return result.substring(0, match.tableContentStart()) + formatted + result.substring(match.tableContentEnd());
+        return true;
     }
 
     private List<String> splitIntoEntryLines(String formattedTable) {
@@ -131,30 +416,61 @@ public class SourceFileFormatter {
      * quotes, comments kept in place — on their own line, or appended to the preceding
      * line when they did not start their source line.
      */
-    private String renderArrayLines(List<StringArrayItem> items, List<String> formattedEntries, String indent) {
+    private void appendArrayLines(
+            StringBuilder out,
+            CharSequence content,
+            List<StringArrayItem> items,
+            List<String> formattedEntries,
+            String indent) {
         int maxWidth =
                 formattedEntries.stream().mapToInt(DisplayWidth::of).max().orElse(0);
 
-        List<String> lines = new ArrayList<>();
+        boolean firstLine = true;
         int entryIndex = 0;
         for (StringArrayItem item : items) {
             if (item instanceof StringArrayItem.Entry) {
-                String cell = "\"" + padRight(formattedEntries.get(entryIndex), maxWidth) + "\"";
+                if (!firstLine) {
+                    out.append('\n');
+                }
+                out.append(indent).append('"');
+                appendPadded(out, formattedEntries.get(entryIndex), maxWidth);
+                out.append('"');
                 entryIndex++;
-                lines.add(indent + cell + (entryIndex < formattedEntries.size() ? "," : ""));
+                if (entryIndex < formattedEntries.size()) {
+                    out.append(',');
+                }
+                firstLine = false;
             } else if (item instanceof StringArrayItem.Comment comment) {
-                if (comment.startsLine() || lines.isEmpty()) {
-                    lines.add(indent + comment.text());
+                if (comment.startsLine() || firstLine) {
+                    if (!firstLine) {
+                        out.append('\n');
+                    }
+                    out.append(indent);
                 } else {
-                    lines.set(lines.size() - 1, lines.get(lines.size() - 1) + " " + comment.text());
+                    out.append(' ');
                 }
+                out.append(content, comment.start(), comment.end());
+                firstLine = false;
             }
         }
-        return String.join("\n", lines);
     }
 
-    private String padRight(String value, int width) {
-        int padding = width - DisplayWidth.of(value);
-        return padding > 0 ? value + " ".repeat(padding) : value;
+    private void appendPadded(StringBuilder out, String value, int width) {
+        out.append(value);
+        for (int padding = width - DisplayWidth.of(value); padding > 0; padding--) {
+            out.append(' ');
+        }
+    }
+
+    private static boolean regionEquals(CharSequence a, int aStart, int aEnd, CharSequence b, int bStart, int bEnd) {
+        if (aEnd - aStart != bEnd - bStart) {
+            return false;
+        }
+        for (int i = 0; i < aEnd - aStart; i++) {
+            if (a.charAt(aStart + i) != b.charAt(bStart + i)) {
+                return false;
+            }
+        }
+        return true;
     }
 }
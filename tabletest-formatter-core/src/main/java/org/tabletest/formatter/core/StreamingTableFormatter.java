@@ -0,0 +1,384 @@
+/*
+ * Copyright 2025-present Nils Christian Haugen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tabletest.formatter.core;
+
+import org.tabletest.formatter.config.Config;
+import org.tabletest.parser.Table;
+import org.tabletest.parser.TableParser;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+/**
+ * Formats standalone table files too large to hold in memory.
+ *
+ * <p>Produces the same output as {@link TableTestFormatter#format} on the whole file,
+ * in passes over the file read through its channel. The first pass parses one row at a
+ * time to find the column widths; the second renders each row again and compares it
+ * with the source, stopping at the first difference; only if there is one, a third
+ * renders the rows again and writes them straight to the target file. Comment and blank
+ * lines are recognised on the fly in every pass, so heap use is bounded by the longest
+ * line, not by the file size. The source is not mapped into memory, so once formatting
+ * returns nothing holds it open and the target can be moved over it on any platform.
+ *
+ * <p>Follows the same graceful degradation policy as {@link TableTestFormatter}: if
+ * any row cannot be parsed, the source is reported as unchanged.
+ *
+ * <p>The file must be UTF-8 encoded and smaller than 2 GB. Bytes that are not UTF-8 fail
+ * formatting with a {@link java.nio.charset.CharacterCodingException}, as reading the file
+ * whole does. When indenting, leading and trailing whitespace of the file is recognised as
+ * ASCII whitespace only.
+ */
+public class StreamingTableFormatter {
+
+    private final TableTestFormatter formatter = new TableTestFormatter();
+    private final CellFormatter cellFormatter = new CellFormatter();
+
+    /**
+     * Formats the table in {@code source} and, if the result differs from the source, writes
+     * it to {@code target}. Nothing is written if the table is formatted already.
+     *
+     * @param source the table file to format (must not be null)
+     * @param target the file to write the formatted table to, which must not exist and is created
+     *     only if the formatted table differs; or null to only compare
+     * @param config the formatting configuration (must not be null)
+     * @return true if the formatted table differs from the source, and was written to target if given;
+     *     false if it is unchanged or cannot be parsed
+     * @throws IOException if the source cannot be read or is not UTF-8, or the target cannot be written
+     */
+    public boolean format(Path source, Path target, Config config) throws IOException {
+        Objects.requireNonNull(source, "source must not be null");
+        Objects.requireNonNull(config, "config must not be null");
+
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File too large to format: " + source);
+            }
+            Source content = new Source(channel, (int) size);
+
+            boolean indented = config.indentSize() > 0;
+            int start = indented ? skipLeadingWhitespace(content) : 0;
+            int end = indented ? skipTrailingWhitespace(content, start) : content.limit();
+
+            Layout layout = scan(content, start, end);
+            if (layout == null) {
+                return false;
+            }
+
+            String indent = indented ? config.indentStyle().repeat(config.indentSize()) : "";
+            // A separate window over the source, as the comparison trails the rows being read
+            ComparingOutput comparison = new ComparingOutput(new Source(channel, (int) size));
+            write(content, start, end, layout, indent, comparison);
+            if (indented) {
+                comparison.append("\n");
+                comparison.append(indent);
+            }
+            if (!comparison.differs()) {
+                return false;
+            }
+            if (target != null) {
+                try (Writer writer = Files.newBufferedWriter(
+                        target, StandardCharsets.UTF_8, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                    write(content, start, end, layout, indent, writer::append);
+                    if (indented) {
+                        writer.append("\n").append(indent);
+                    }
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Column widths and the synthetic header used to parse data rows one at a time.
+     */
+    private record Layout(int[] columnWidths, String rowHeader) {}
+
+    /**
+     * First pass: parses every table line and measures its cells. Returns null if the
+     * table has no header or any line cannot be parsed.
+     */
+    private Layout scan(Source content, int start, int end) throws IOException {
+        int[] columnWidths = null;
+        String rowHeader = null;
+
+        int lineStart = start;
+        while (lineStart <= end) {
+            int lineEnd = findLineEnd(content, lineStart, end);
+            String line = decode(content, lineStart, lineEnd);
+            lineStart = lineEnd + 1;
+            if (isPreserved(line)) {
+                continue;
+            }
+
+            try {
+                if (columnWidths == null) {
+                    Table header = TableParser.parse(line, true);
+                    columnWidths =
+                            CellGrid.ofRow(header.headers(), cellFormatter).columnWidths();
+                    rowHeader = syntheticHeader(columnWidths.length);
+                } else {
+                    int[] rowWidths = parseRow(rowHeader, line).columnWidths();
+                    if (rowWidths.length != columnWidths.length) {
+                        return null;
+                    }
+                    for (int i = 0; i < rowWidths.length; i++) {
+                        columnWidths[i] = Math.max(columnWidths[i], rowWidths[i]);
+                    }
+                }
+            } catch (Exception e) {
+                // Unparseable line: leave the file untouched
+                return null;
+            }
+        }
+
+        return columnWidths == null ? null : new Layout(columnWidths, rowHeader);
+    }
+
+    /**
+     * Later passes: writes every line, table lines rendered again and padded to the column
+     * widths, until the output is done.
+     */
+    private void write(Source content, int start, int end, Layout layout, String indent, Output out)
+            throws IOException {
+        boolean header = true;
+        StringBuilder formatted = new StringBuilder();
+
+        int lineStart = start;
+        while (lineStart <= end && !out.done()) {
+            int lineEnd = findLineEnd(content, lineStart, end);
+            String line = decode(content, lineStart, lineEnd);
+            if (lineStart > start) {
+                out.append("\n");
+            }
+            lineStart = lineEnd + 1;
+
+            formatted.setLength(0);
+            if (isPreserved(line)) {
+                formatted.append(indent.isEmpty() ? line : line.trim());
+            } else {
+                CellGrid row = header
+                        ? CellGrid.ofRow(TableParser.parse(line, true).headers(), cellFormatter)
+                        : parseRow(layout.rowHeader(), line);
+                formatter.appendRow(formatted, row, 0, layout.columnWidths());
+                header = false;
+            }
+            if (!formatted.isEmpty()) {
+                // Blank lines stay empty to avoid trailing whitespace
+                out.append(indent);
+            }
+            out.append(formatted);
+        }
+    }
+
+    private CellGrid parseRow(String rowHeader, String line) {
+        Table table = TableParser.parse(rowHeader + "\n" + line, true);
+        if (table.rows().size() != 1) {
+            throw new IllegalStateException("Expected exactly one row in line: " + line);
+        }
+        return CellGrid.ofRow(table.rows().get(0).values(), cellFormatter);
+    }
+
+    /**
+     * A header with the table's column count, so a data line can be parsed on its own.
+     */
+    private static String syntheticHeader(int columnCount) {
+        StringBuilder header = new StringBuilder("c0");
+        for (int i = 1; i < columnCount; i++) {
+            header.append("|c").append(i);
+        }
+        return header.toString();
+    }
+
+    private boolean isPreserved(String line) {
+        return formatter.isCommentLine(line) || formatter.isBlankLine(line);
+    }
+
+    /**
+     * Where a pass writes the formatted text.
+     */
+    private interface Output {
+
+        void append(CharSequence text) throws IOException;
+
+        /**
+         * Whether the output needs no more text.
+         */
+        default boolean done() {
+            return false;
+        }
+    }
+
+    /**
+     * Compares the formatted text byte by byte with the source, done at the first
+     * difference.
+     */
+    private static final class ComparingOutput implements Output {
+
+        private final Source source;
+        private int sourcePosition;
+        private boolean differs;
+
+        ComparingOutput(Source source) {
+            this.source = source;
+        }
+
+        @Override
+        public void append(CharSequence text) throws IOException {
+            if (!differs) {
+                compare(text);
+            }
+        }
+
+        @Override
+        public boolean done() {
+            return differs;
+        }
+
+        private void compare(CharSequence text) throws IOException {
+            byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+            if (sourcePosition + bytes.length > source.limit()) {
+                differs = true;
+                return;
+            }
+            for (byte b : bytes) {
+                if (source.get(sourcePosition++) != b) {
+                    differs = true;
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Whether the written text differs from the source, including a source that is longer.
+         */
+        boolean differs() {
+            return differs || sourcePosition != source.limit();
+        }
+    }
+
+    /**
+     * Random access to the bytes of a file, read through its channel a window at a time.
+     * Access is mostly sequential, and backwards only when skipping trailing whitespace.
+     */
+    private static final class Source {
+
+        private static final int WINDOW_SIZE = 64 * 1024;
+
+        private final FileChannel channel;
+        private final int limit;
+        private final ByteBuffer window = ByteBuffer.allocate(WINDOW_SIZE);
+        private final CharsetDecoder decoder = StandardCharsets.UTF_8
+                .newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        private int windowStart;
+        private int windowEnd;
+
+        Source(FileChannel channel, int limit) {
+            this.channel = channel;
+            this.limit = limit;
+        }
+
+        int limit() {
+            return limit;
+        }
+
+        CharsetDecoder decoder() {
+            return decoder;
+        }
+
+        byte get(int position) throws IOException {
+            if (position < windowStart || position >= windowEnd) {
+                fill(position - position % WINDOW_SIZE);
+            }
+            return window.get(position - windowStart);
+        }
+
+        void get(int position, byte[] bytes) throws IOException {
+            int copied = 0;
+            while (copied < bytes.length) {
+                int from = position + copied;
+                if (from < windowStart || from >= windowEnd) {
+                    fill(from - from % WINDOW_SIZE);
+                }
+                int length = Math.min(bytes.length - copied, windowEnd - from);
+                window.get(from - windowStart, bytes, copied, length);
+                copied += length;
+            }
+        }
+
+        private void fill(int start) throws IOException {
+            window.clear();
+            while (window.hasRemaining() && start + window.position() < limit) {
+                if (channel.read(window, start + window.position()) < 0) {
+                    break;
+                }
+            }
+            windowStart = start;
+            windowEnd = start + window.position();
+        }
+    }
+
+    private static int findLineEnd(Source content, int from, int end) throws IOException {
+        int i = from;
+        // A newline byte never occurs inside a multi-byte UTF-8 sequence
+        while (i < end && content.get(i) != '\n') {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Decodes a line, failing on bytes that are not UTF-8 as reading the whole file with
+     * {@link Files#readString} does, rather than replacing them and rewriting the file.
+     */
+    private static String decode(Source content, int from, int to) throws IOException {
+        byte[] bytes = new byte[to - from];
+        content.get(from, bytes);
+        return content.decoder().reset().decode(ByteBuffer.wrap(bytes)).toString();
+    }
+
+    private static int skipLeadingWhitespace(Source content) throws IOException {
+        int i = 0;
+        while (i < content.limit() && isAsciiWhitespace(content.get(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipTrailingWhitespace(Source content, int from) throws IOException {
+        int i = content.limit();
+        while (i > from && isAsciiWhitespace(content.get(i - 1))) {
+            i--;
+        }
+        return i;
+    }
+
+    private static boolean isAsciiWhitespace(byte b) {
+        return b >= 0 && Character.isWhitespace(b);
+    }
+}
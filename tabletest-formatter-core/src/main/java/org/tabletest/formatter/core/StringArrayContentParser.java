@@ -27,30 +27,34 @@ import java.util.List;
  */
 final class StringArrayContentParser {
 
-    List<StringArrayItem> parse(String arrayContent) {
+    /**
+     * Parses the array content between {@code start} and {@code end} of {@code source}.
+     * Item offsets refer to {@code source}.
+     */
+    List<StringArrayItem> parse(CharSequence source, int start, int end) {
         List<StringArrayItem> items = new ArrayList<>();
         boolean firstOnLine = true;
-        int i = 0;
+        int i = start;
 
-        while (i < arrayContent.length()) {
-            char c = arrayContent.charAt(i);
-            char next = peek(arrayContent, i + 1);
+        while (i < end) {
+            char c = source.charAt(i);
+            char next = peek(source, i + 1, end);
 
             if (c == '"') {
-                int end = findStringEnd(arrayContent, i + 1);
-                items.add(new StringArrayItem.Entry(arrayContent.substring(i + 1, end), firstOnLine));
+                int stringEnd = findStringEnd(source, i + 1, end);
+                items.add(new StringArrayItem.Entry(i + 1, stringEnd, firstOnLine));
                 firstOnLine = false;
-                i = end + 1;
+                i = stringEnd + 1;
             } else if (c == '/' && next == '/') {
-                int end = findLineEnd(arrayContent, i);
-                items.add(new StringArrayItem.Comment(arrayContent.substring(i, end), firstOnLine));
+                int commentEnd = findLineEnd(source, i, end);
+                items.add(new StringArrayItem.Comment(i, commentEnd, firstOnLine));
                 firstOnLine = false;
-                i = end;
+                i = commentEnd;
             } else if (c == '/' && next == '*') {
-                int end = findBlockCommentEnd(arrayContent, i + 2);
-                items.add(new StringArrayItem.Comment(arrayContent.substring(i, end), firstOnLine));
+                int commentEnd = findBlockCommentEnd(source, i + 2, end);
+                items.add(new StringArrayItem.Comment(i, commentEnd, firstOnLine));
                 firstOnLine = false;
-                i = end;
+                i = commentEnd;
             } else {
                 if (c == '\n') {
                     firstOnLine = true;
@@ -62,18 +66,18 @@ final class StringArrayContentParser {
         return List.copyOf(items);
     }
 
-    private char peek(String content, int index) {
-        return index < content.length() ? content.charAt(index) : '\0';
+    private char peek(CharSequence source, int index, int end) {
+        return index < end ? source.charAt(index) : '\0';
     }
 
     /**
      * Finds the closing quote of a string literal, honouring backslash escapes.
-     * Returns the content length if the string is unterminated.
+     * Returns the content end if the string is unterminated.
      */
-    private int findStringEnd(String content, int from) {
+    private int findStringEnd(CharSequence source, int from, int end) {
         int i = from;
-        while (i < content.length()) {
-            char c = content.charAt(i);
+        while (i < end) {
+            char c = source.charAt(i);
             if (c == '\\') {
                 i += 2;
             } else if (c == '"') {
@@ -82,16 +86,23 @@ final class StringArrayContentParser {
                 i++;
             }
         }
-        return content.length();
+        return end;
     }
 
-    private int findLineEnd(String content, int from) {
-        int newline = content.indexOf('\n', from);
-        return newline == -1 ? content.length() : newline;
+    private int findLineEnd(CharSequence source, int from, int end) {
+        int i = from;
+        while (i < end && source.charAt(i) != '\n') {
+            i++;
+        }
+        return i;
     }
 
-    private int findBlockCommentEnd(String content, int from) {
-        int close = content.indexOf("*/", from);
-        return close == -1 ? content.length() : close + 2;
+    private int findBlockCommentEnd(CharSequence source, int from, int end) {
+        for (int i = from; i + 1 < end; i++) {
+            if (source.charAt(i) == '*' && source.charAt(i + 1) == '/') {
+                return i + 2;
+            }
+        }
+        return end;
     }
 }
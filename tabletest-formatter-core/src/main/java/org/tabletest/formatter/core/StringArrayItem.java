@@ -19,7 +19,8 @@ package org.tabletest.formatter.core;
  * An item found inside a @TableTest string-array initializer: a string entry or a comment.
  *
  * <p>Items appear in source order, so a formatter can rebuild the array with
- * comments kept in their original positions.
+ * comments kept in their original positions. Each item holds offsets into the
+ * parsed source rather than a copy of its text.
  */
 sealed interface StringArrayItem {
 
@@ -32,16 +33,18 @@ sealed interface StringArrayItem {
     /**
      * A string literal entry.
      *
-     * @param value      the raw text between the quotes, escape sequences untouched
+     * @param start      offset of the raw text between the quotes, escape sequences untouched
+     * @param end        offset where the raw text ends, exclusive
      * @param startsLine whether this entry is the first item on its source line
      */
-    record Entry(String value, boolean startsLine) implements StringArrayItem {}
+    record Entry(int start, int end, boolean startsLine) implements StringArrayItem {}
 
     /**
      * A line or block comment.
      *
-     * @param text       the full comment text including the comment markers
+     * @param start      offset of the full comment text including the comment markers
+     * @param end        offset where the comment text ends, exclusive
      * @param startsLine whether this comment is the first item on its source line
      */
-    record Comment(String text, boolean startsLine) implements StringArrayItem {}
+    record Comment(int start, int end, boolean startsLine) implements StringArrayItem {}
 }
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2025-present Nils Christian Haugen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tabletest.formatter.core;
+
+/**
+ * Told about each table as it is formatted, e.g. to time tables or count their rows.
+ *
+ * <p>For each table, {@link #tableStarted} and {@link #tableFinished} are called around
+ * formatting it, and {@link #tableParsed} in between if the table can be parsed. Calls
+ * for one formatting call come from the thread making it.
+ */
+public interface TableListener {
+
+    /**
+     * A listener that ignores every table.
+     */
+    TableListener NONE = new TableListener() {};
+
+    /**
+     * A table is about to be formatted.
+     *
+     * @param offset where the table's content starts in the text being formatted
+     */
+    default void tableStarted(int offset) {}
+
+    /**
+     * The table being formatted has been parsed.
+     *
+     * @param rows  the data rows, not counting the header
+     * @param cells the cells in the data rows
+     */
+    default void tableParsed(int rows, int cells) {}
+
+    /**
+     * The table started last is formatted, or left as it was if unchanged or unparseable.
+     */
+    default void tableFinished() {}
+}
@@ -27,6 +27,8 @@ import java.util.List;
  */
 public class TableTestExtractor {
 
+    private static final String TABLE_TEST = "TableTest";
+
     private enum State {
         CODE, // Normal code - look for @TableTest
         LINE_COMMENT, // Inside // comment
@@ -38,7 +40,7 @@ public class TableTestExtractor {
         STRING_ARRAY // Inside {...} string array
     }
 
-    public List<TableMatch> findAll(String sourceCode) {
+    public List<TableMatch> findAll(CharSequence sourceCode) {
         if (sourceCode == null) {
             throw new NullPointerException("sourceCode must not be null");
         }
@@ -262,11 +264,11 @@ public class TableTestExtractor {
         return matches;
     }
 
-    private char peek(String source, int index) {
+    private char peek(CharSequence source, int index) {
         return index < source.length() ? source.charAt(index) : '\0';
     }
 
-    private int findLineStart(String source, int pos) {
+    private int findLineStart(CharSequence source, int pos) {
         int i = pos - 1;
         while (i >= 0 && source.charAt(i) != '\n') {
             i--;
@@ -283,7 +285,7 @@ public class TableTestExtractor {
      * @param pos position of the '@' character
      * @return true if this is a TableTest annotation
      */
-    private boolean isTableTestAnnotation(String source, int pos) {
+    private boolean isTableTestAnnotation(CharSequence source, int pos) {
         if (pos >= source.length() || source.charAt(pos) != '@') {
             return false;
         }
@@ -308,9 +310,8 @@ public class TableTestExtractor {
 
         // Extract the last component (after the last dot, or entire name if no dot)
         int lastComponentStart = lastDotPos == -1 ? pos + 1 : lastDotPos + 1;
-        String lastComponent = source.substring(lastComponentStart, i);
-
-        return lastComponent.equals("TableTest");
+        return i - lastComponentStart == TABLE_TEST.length()
+                && TABLE_TEST.contentEquals(source.subSequence(lastComponentStart, i));
     }
 
     /**
@@ -322,7 +323,7 @@ public class TableTestExtractor {
      * @param pos position to check
      * @return true if the character at pos is escaped
      */
-    private boolean isEscaped(String source, int pos) {
+    private boolean isEscaped(CharSequence source, int pos) {
         if (pos == 0) {
             return false;
         }
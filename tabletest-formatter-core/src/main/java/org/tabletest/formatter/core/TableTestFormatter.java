@@ -19,13 +19,9 @@ import org.tabletest.formatter.config.Config;
 import org.tabletest.parser.Table;
 import org.tabletest.parser.TableParser;
 
-import java.util.Arrays;
+import java.io.IOException;
 import java.util.List;
 import java.util.Objects;
-import java.util.stream.IntStream;
-import java.util.stream.Stream;
-
-import static java.util.stream.Collectors.joining;
 
 /**
  * Formats TableTest tables according to consistent formatting rules.
@@ -88,41 +84,177 @@ public class TableTestFormatter {
      * @throws NullPointerException if tableText, baseIndentString, or config is null
      */
     public String format(String tableText, String baseIndentString, Config config) {
+        StringBuilder out = new StringBuilder();
+        return appendFormatted(tableText, baseIndentString, config, out) ? out.toString() : tableText;
+    }
+
+    /**
+     * Formats the given TableTest table text as {@link #format(String, String, Config)} does,
+     * telling {@code listener} about the table: started at offset 0, its rows and cells once
+     * parsed, and finished.
+     *
+     * @param tableText        the raw table text to format (must not be null)
+     * @param baseIndentString the base indentation string to preserve (must not be null)
+     * @param config           the formatting configuration (must not be null)
+     * @param listener         the listener to tell about the table (must not be null)
+     * @return the formatted table text, or the original input if parsing/formatting fails
+     * @throws NullPointerException if any parameter is null
+     */
+    public String format(String tableText, String baseIndentString, Config config, TableListener listener) {
+        Objects.requireNonNull(tableText, "tableText must not be null");
+        Objects.requireNonNull(listener, "listener must not be null");
+        listener.tableStarted(0);
+        StringBuilder out = new StringBuilder();
+        boolean formatted = appendFormatted(tableText, 0, tableText.length(), baseIndentString, config, out, listener);
+        listener.tableFinished();
+        return formatted ? out.toString() : tableText;
+    }
+
+    /**
+     * Formats the given TableTest table text and appends the result to {@code out}.
+     *
+     * <p>Same formatting and graceful degradation as {@link #format}: if the input cannot
+     * be parsed, it is appended unchanged. The table is rendered straight into {@code out},
+     * so a builder reused across tables or files saves allocating a string per table.
+     *
+     * @param tableText        the raw table text to format (must not be null)
+     * @param baseIndentString the base indentation string to preserve (must not be null)
+     * @param config           the formatting configuration (must not be null)
+     * @param out              the builder to append the formatted table to (must not be null)
+     * @throws NullPointerException if any parameter is null
+     */
+    public void formatTo(String tableText, String baseIndentString, Config config, StringBuilder out) {
+        Objects.requireNonNull(tableText, "tableText must not be null");
+        formatTo(tableText, 0, tableText.length(), baseIndentString, config, out);
+    }
+
+    /**
+     * Formats the table text between {@code start} and {@code end} of {@code tableText} and
+     * appends the result to {@code out}.
+     *
+     * <p>Same formatting and graceful degradation as {@link #format}: if the region cannot
+     * be parsed, it is appended unchanged. The region is read straight from {@code tableText},
+     * which may be any character sequence, e.g. a whole source file or a {@link java.nio.CharBuffer}
+     * over a decoded file. It is copied once, for the parser, and not at all if it already spans
+     * a whole {@link String}.
+     *
+     * @param tableText        the text holding the table (must not be null)
+     * @param start            the offset where the table starts
+     * @param end              the offset where the table ends, exclusive
+     * @param baseIndentString the base indentation to preserve (must not be null)
+     * @param config           the formatting configuration (must not be null)
+     * @param out              the builder to append the formatted table to (must not be null)
+     * @throws IndexOutOfBoundsException if the region is not within {@code tableText}
+     * @throws NullPointerException      if any reference parameter is null
+     */
+    public void formatTo(
+            CharSequence tableText,
+            int start,
+            int end,
+            CharSequence baseIndentString,
+            Config config,
+            StringBuilder out) {
+        formatTo(tableText, start, end, baseIndentString, config, out, TableListener.NONE);
+    }
+
+    /**
+     * Formats the region as {@link #formatTo(CharSequence, int, int, CharSequence, Config,
+     * StringBuilder)} does, telling {@code listener} the table's rows and cells once parsed.
+     */
+    void formatTo(
+            CharSequence tableText,
+            int start,
+            int end,
+            CharSequence baseIndentString,
+            Config config,
+            StringBuilder out,
+            TableListener listener) {
+        Objects.requireNonNull(out, "out must not be null");
+        if (!appendFormatted(tableText, start, end, baseIndentString, config, out, listener)) {
+            out.append(tableText, start, end);
+        }
+    }
+
+    /**
+     * Formats the given TableTest table text and writes the result to {@code out}.
+     *
+     * <p>Same formatting and graceful degradation as {@link #format}. Lets callers write
+     * straight to a {@link java.io.Writer} without first building the whole result as a string.
+     *
+     * @param tableText        the raw table text to format (must not be null)
+     * @param baseIndentString the base indentation string to preserve (must not be null)
+     * @param config           the formatting configuration (must not be null)
+     * @param out              the destination to write the formatted table to (must not be null)
+     * @throws IOException          if writing to {@code out} fails
+     * @throws NullPointerException if any parameter is null
+     */
+    public void formatTo(String tableText, String baseIndentString, Config config, Appendable out) throws IOException {
+        Objects.requireNonNull(out, "out must not be null");
+        if (out instanceof StringBuilder builder) {
+            formatTo(tableText, baseIndentString, config, builder);
+            return;
+        }
+        // The table must be complete before anything is written, to fall back to the input on failure
+        StringBuilder formatted = new StringBuilder();
+        out.append(appendFormatted(tableText, baseIndentString, config, formatted) ? formatted : tableText);
+    }
+
+    private boolean appendFormatted(String tableText, String baseIndentString, Config config, StringBuilder out) {
+        Objects.requireNonNull(tableText, "tableText must not be null");
+        return appendFormatted(tableText, 0, tableText.length(), baseIndentString, config, out, TableListener.NONE);
+    }
+
+    /**
+     * Appends the formatted table to {@code out}, telling {@code listener} the table's rows
+     * and cells once parsed. Returns false, with {@code out} left as it was, if the table
+     * cannot be parsed or formatted.
+     */
+    boolean appendFormatted(
+            CharSequence tableText,
+            int start,
+            int end,
+            CharSequence baseIndentString,
+            Config config,
+            StringBuilder out,
+            TableListener listener) {
         Objects.requireNonNull(tableText, "tableText must not be null");
         Objects.requireNonNull(baseIndentString, "baseIndentString must not be null");
         Objects.requireNonNull(config, "config must not be null");
+        Objects.checkFromToIndex(start, end, tableText.length());
 
+        int outStart = out.length();
         try {
             // Strip and normalize whitespace structure when using indentation
-            String input = config.indentSize() > 0 ? tableText.strip() : tableText;
-
-            // Trim lines when indentation will be applied to normalize spacing
-            String[] lines = config.indentSize() > 0
-                    ? Arrays.stream(input.split("\n", -1)).map(String::trim).toArray(String[]::new)
-                    : input.split("\n", -1);
-
-            // Identify comment and blank lines
-            List<Integer> commentOrBlankLines = IntStream.range(0, lines.length)
-                    .filter(i -> isCommentLine(lines[i]) || isBlankLine(lines[i]))
-                    .boxed()
-                    .toList();
+            boolean indented = config.indentSize() > 0;
+            if (indented) {
+                start = skipLeadingWhitespace(tableText, start, end);
+                end = skipTrailingWhitespace(tableText, start, end);
+            }
+            // The parser needs a String: the one copy of the table text
+            String input = tableText.subSequence(start, end).toString();
 
             // Format the table (parser ignores comments and blank lines)
             Table table = TableParser.parse(input, true);
+            listener.tableParsed(table.rows().size(), cellCount(table));
 
-            String formatted = formatTable(table);
-
-            // Add back preserved comments and blank lines
-            String withComments = addBackCommentsAndBlankLines(lines, commentOrBlankLines, formatted);
-
-            // Apply indentation as final step if requested
-            return config.indentSize() > 0 ? applyIndentation(withComments, config, baseIndentString) : withComments;
+            String indent = indented ? baseIndentString + config.indentStyle().repeat(config.indentSize()) : "";
+            render(out, input, table, indented, indent);
+            return true;
         } catch (Exception e) {
-            // Return input unchanged if parsing or formatting fails
-            return tableText;
+            // Leave output as it was if parsing or formatting fails
+            out.setLength(outStart);
+            return false;
         }
     }
 
+    private static int cellCount(Table table) {
+        int cells = 0;
+        for (var row : table.rows()) {
+            cells += row.values().size();
+        }
+        return cells;
+    }
+
     boolean isCommentLine(String line) {
         return line.trim().startsWith("//");
     }
@@ -131,46 +263,124 @@ public class TableTestFormatter {
         return line.trim().isEmpty();
     }
 
-    private String addBackCommentsAndBlankLines(
-            String[] originalLines, List<Integer> commentOrBlankIndices, String formatted) {
-        String[] formattedLines = formatted.split("\n", -1);
+    /**
+     * Writes the formatted table in one pass over the input lines.
+     *
+     * <p>Comment and blank lines are copied from the input at their original positions
+     * (trimmed when indenting); every other line is replaced by the next formatted table
+     * line, header first. Table lines left over once the input is exhausted are appended.
+     * When indenting, each non-empty line gets the indent and the result ends with a bare
+     * indent for closing quote alignment.
+     */
+    private void render(StringBuilder out, String input, Table table, boolean indented, String indent) {
+        CellGrid grid = CellGrid.of(table, cellFormatter);
+        int[] columnWidths = grid.columnWidths();
+        out.ensureCapacity(out.length() + estimateLength(columnWidths, grid.rowCount(), indent));
+
+        int tableLine = 0;
+        int lineStart = 0;
+        while (lineStart <= input.length()) {
+            int lineEnd = input.indexOf('\n', lineStart);
+            if (lineEnd == -1) {
+                lineEnd = input.length();
+            }
+            if (lineStart > 0) {
+                out.append('\n');
+            }
 
-        List<String> result = new java.util.ArrayList<>();
-        int formattedIndex = 0;
+            int contentStart = skipLeadingSpaceAndControl(input, lineStart, lineEnd);
+            int contentEnd = skipTrailingSpaceAndControl(input, contentStart, lineEnd);
+            boolean preserved = contentStart == contentEnd || input.startsWith("//", contentStart);
 
-        // Merge original lines (with comments/blanks) with formatted lines
-        for (int i = 0; i < originalLines.length; i++) {
-            if (commentOrBlankIndices.contains(i)) {
-                // Preserve comment or blank line from original
-                result.add(originalLines[i]);
+            int lineOffset = out.length();
+            out.append(indent);
+            if (preserved) {
+                out.append(input, indented ? contentStart : lineStart, indented ? contentEnd : lineEnd);
             } else {
-                // Use formatted table line
-                result.add(formattedLines[formattedIndex++]);
+                appendTableLine(out, grid, tableLine++, columnWidths);
             }
+            dropBareIndent(out, lineOffset, indent);
+
+            lineStart = lineEnd + 1;
         }
 
-        // Add any remaining formatted lines
-        // Skip final empty string (artifact from split with trailing newline)
-        while (formattedIndex < formattedLines.length) {
-            if (formattedIndex == formattedLines.length - 1 && formattedLines[formattedIndex].isEmpty()) {
-                break;
-            }
-            result.add(formattedLines[formattedIndex++]);
+        // Add any table lines without a source line of their own
+        while (tableLine < grid.rowCount()) {
+            out.append('\n');
+            int lineOffset = out.length();
+            out.append(indent);
+            appendTableLine(out, grid, tableLine++, columnWidths);
+            dropBareIndent(out, lineOffset, indent);
+        }
+
+        if (indented) {
+            out.append('\n').append(indent);
+        }
+    }
+
+    private void appendTableLine(StringBuilder out, CellGrid grid, int tableLine, int[] columnWidths) {
+        if (tableLine >= grid.rowCount()) {
+            // More table lines in the input than the parser found rows: leave the input untouched
+            throw new IllegalStateException("Table line " + tableLine + " has no parsed row");
+        }
+        appendRow(out, grid, tableLine, columnWidths);
+    }
+
+    /**
+     * Removes the indent again if nothing followed it on the line, so blank lines stay
+     * empty to avoid trailing whitespace.
+     */
+    private static void dropBareIndent(StringBuilder out, int lineOffset, String indent) {
+        if (out.length() == lineOffset + indent.length()) {
+            out.setLength(lineOffset);
+        }
+    }
+
+    private static int skipLeadingSpaceAndControl(String text, int from, int to) {
+        int i = from;
+        while (i < to && text.charAt(i) <= ' ') {
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipTrailingSpaceAndControl(String text, int from, int to) {
+        int i = to;
+        while (i > from && text.charAt(i - 1) <= ' ') {
+            i--;
         }
+        return i;
+    }
 
-        return String.join("\n", result);
+    /**
+     * Skips whitespace as {@link String#strip()} does.
+     */
+    private static int skipLeadingWhitespace(CharSequence text, int from, int to) {
+        int i = from;
+        while (i < to && Character.isWhitespace(text.charAt(i))) {
+            i++;
+        }
+        return i;
     }
 
-    private String applyIndentation(String formatted, Config config, String baseIndentString) {
-        String indent = baseIndentString + config.indentStyle().repeat(config.indentSize());
-        String[] lines = formatted.split("\n", -1);
+    private static int skipTrailingWhitespace(CharSequence text, int from, int to) {
+        int i = to;
+        while (i > from && Character.isWhitespace(text.charAt(i - 1))) {
+            i--;
+        }
+        return i;
+    }
 
-        // Indent each line (blank lines stay empty to avoid trailing whitespace)
-        // and add trailing indent for closing quote alignment
-        return Arrays.stream(lines)
-                        .map(line -> line.isEmpty() ? line : indent + line)
-                        .collect(joining("\n"))
-                + "\n" + indent;
+    /**
+     * Estimates the formatted length: every table line as wide as its padded columns plus
+     * separators and indent. Comment lines are not counted; the builder grows for those.
+     */
+    private static int estimateLength(int[] columnWidths, int lineCount, String indent) {
+        int lineWidth = 0;
+        for (int width : columnWidths) {
+            lineWidth += width + 3;
+        }
+        return lineCount * (indent.length() + lineWidth + 1) + indent.length();
     }
 
     /**
@@ -186,33 +396,7 @@ public class TableTestFormatter {
      */
     public int[] calculateColumnWidths(String tableText) {
         Table table = TableParser.parse(tableText, true);
-        return calculateColumnWidths(table);
-    }
-
-    private String formatTable(Table table) {
-        int[] columnWidths = calculateColumnWidths(table);
-
-        String headerRow = formatRow(table.headers(), columnWidths);
-
-        String dataRows = table.rows().stream()
-                .map(row -> formatRow(row.values(), columnWidths))
-                .collect(joining("\n"));
-
-        return table.rows().isEmpty() ? headerRow + "\n" : headerRow + "\n" + dataRows + "\n";
-    }
-
-    private int[] calculateColumnWidths(Table table) {
-        return IntStream.range(0, table.columnCount())
-                .map(col -> calculateColumnWidth(table, col))
-                .toArray();
-    }
-
-    private int calculateColumnWidth(Table table, int columnIndex) {
-        List<Object> cells = Stream.concat(
-                        Stream.of(table.header(columnIndex)),
-                        table.rows().stream().map(row -> row.value(columnIndex)))
-                .toList();
-        return columnWidth(cells);
+        return CellGrid.of(table, cellFormatter).columnWidths();
     }
 
     /**
@@ -224,7 +408,7 @@ public class TableTestFormatter {
     }
 
     private int cellWidth(Object cell) {
-        return DisplayWidth.of(cellFormatter.formatCell(cell));
+        return cellFormatter.cellWidth(cell);
     }
 
     /**
@@ -232,32 +416,46 @@ public class TableTestFormatter {
      * joined with the {@code " | "} separator (no padding after the last column).
      */
     String formatRow(List<?> cells, int[] columnWidths) {
-        return IntStream.range(0, cells.size())
-                .mapToObj(i -> {
-                    String value = cellFormatter.formatCell(cells.get(i));
-                    return padToColumnWidth(value, i == 0, i == cells.size() - 1, columnWidths[i]);
-                })
-                .collect(joining("|"));
+        StringBuilder out = new StringBuilder();
+        appendRow(out, CellGrid.ofRow(cells, cellFormatter), 0, columnWidths);
+        return out.toString();
     }
 
-    private String padToColumnWidth(String value, boolean isFirst, boolean isLast, int columnWidth) {
-        if (isFirst && isLast) {
-            // Single column: no padding, no spacing
-            return value;
-        } else if (isFirst) {
-            // First column (not last): no leading space, just pad
-            return padCell(value, columnWidth);
-        } else if (isLast) {
-            // Last column (not first): leading space only
-            return value.isEmpty() ? "" : " " + value;
-        } else {
-            // Middle cells: leading space + padding
-            return " " + padCell(value, columnWidth);
+    /**
+     * Writes one row of the grid into {@code out}, laid out as described for {@link #formatRow}.
+     */
+    void appendRow(StringBuilder out, CellGrid grid, int row, int[] columnWidths) {
+        int lastColumn = grid.columnCount(row) - 1;
+        for (int i = 0; i <= lastColumn; i++) {
+            if (i > 0) {
+                out.append('|');
+            }
+            if (i == 0 && i == lastColumn) {
+                // Single column: no padding, no spacing
+                grid.appendValue(out, row, i);
+            } else if (i == 0) {
+                // First column (not last): no leading space, just pad
+                appendPadded(out, grid, row, i, columnWidths[i]);
+            } else if (i == lastColumn) {
+                // Last column (not first): leading space only, none before an empty value
+                int valueStart = out.append(' ').length();
+                grid.appendValue(out, row, i);
+                if (out.length() == valueStart) {
+                    out.setLength(valueStart - 1);
+                }
+            } else {
+                // Middle cells: leading space + padding
+                out.append(' ');
+                appendPadded(out, grid, row, i, columnWidths[i]);
+            }
         }
     }
 
-    private String padCell(String value, int width) {
-        int paddingSpaces = width + COLUMN_SEPARATOR_WIDTH - DisplayWidth.of(value);
-        return value + " ".repeat(Math.max(0, paddingSpaces));
+    private void appendPadded(StringBuilder out, CellGrid grid, int row, int column, int columnWidth) {
+        grid.appendValue(out, row, column);
+        int padding = columnWidth + COLUMN_SEPARATOR_WIDTH - grid.width(row, column);
+        for (int i = 0; i < padding; i++) {
+            out.append(' ');
+        }
     }
 }
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2025-present Nils Christian Haugen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tabletest.formatter.core;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Replacement of one span of a source file with formatted text.
+ *
+ * <p>Offsets are {@code char} indices into the original content. A list of edits from
+ * {@link SourceFileFormatter#formatEdits} is sorted by offset and non-overlapping, and
+ * every offset refers to the original content, so edits can be applied in any order
+ * that accounts for that (e.g. back to front).
+ *
+ * @param start       offset where the replaced span starts
+ * @param end         offset where the replaced span ends, exclusive
+ * @param replacement the text to put in place of the span
+ */
+public record TextEdit(int start, int end, String replacement) {
+
+    public TextEdit {
+        Objects.requireNonNull(replacement, "replacement must not be null");
+        if (start < 0 || end < start) {
+            throw new IllegalArgumentException("Invalid span: " + start + ".." + end);
+        }
+    }
+
+    /**
+     * Applies sorted, non-overlapping edits to the content they were computed for.
+     *
+     * @param content the original content
+     * @param edits   the edits, sorted by offset
+     * @return the content with every edit applied
+     * @throws IllegalArgumentException if the edits are out of order or overlap
+     */
+    public static String applyAll(CharSequence content, List<TextEdit> edits) {
+        int replacementLength = 0;
+        for (TextEdit edit : edits) {
+            replacementLength += edit.replacement().length() - (edit.end() - edit.start());
+        }
+
+        StringBuilder out = new StringBuilder(content.length() + Math.max(0, replacementLength));
+        int copied = 0;
+        for (TextEdit edit : edits) {
+            if (edit.start() < copied) {
+                throw new IllegalArgumentException("Edits out of order or overlapping at offset " + edit.start());
+            }
+            out.append(content, copied, edit.start()).append(edit.replacement());
+            copied = edit.end();
+        }
+        return out.append(content, copied, content.length()).toString();
+    }
+}
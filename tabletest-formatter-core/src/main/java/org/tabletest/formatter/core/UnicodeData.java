@@ -0,0 +1,123 @@
+/*
+ * Copyright 2025-present Nils Christian Haugen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tabletest.formatter.core;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Per-code-point Unicode properties needed to measure display width, looked up in O(1).
+ *
+ * <p>The data is generated from the Unicode Character Database by the
+ * {@code tabletest-formatter-unicode-generator} module into {@code unicode-data.bin}
+ * and loaded on first use. Each code point has one property byte: its display width
+ * in bits 0-1, its grapheme cluster break class in bits 2-5 and the
+ * Extended_Pictographic flag in bit 6. The bytes are stored as a two-stage table:
+ * a block index, then deduplicated blocks of property bytes.
+ *
+ * <p>Break class numbering and file layout must match the generator.
+ */
+final class UnicodeData {
+
+    static final int OTHER = 0;
+    static final int CR = 1;
+    static final int LF = 2;
+    static final int CONTROL = 3;
+    static final int EXTEND = 4;
+    static final int ZWJ = 5;
+    static final int REGIONAL_INDICATOR = 6;
+    static final int PREPEND = 7;
+    static final int SPACING_MARK = 8;
+    static final int L = 9;
+    static final int V = 10;
+    static final int T = 11;
+    static final int LV = 12;
+    static final int LVT = 13;
+
+    private static final int FORMAT_VERSION = 1;
+    private static final int WIDTH_MASK = 0x3;
+    private static final int BREAK_CLASS_SHIFT = 2;
+    private static final int BREAK_CLASS_MASK = 0xF;
+    private static final int EXTENDED_PICTOGRAPHIC = 1 << 6;
+
+    private static final String UNICODE_VERSION;
+    private static final int BLOCK_SHIFT;
+    private static final int BLOCK_MASK;
+    private static final char[] BLOCK_INDEX;
+    private static final byte[] BLOCKS;
+
+    static {
+        try (InputStream stream = UnicodeData.class.getResourceAsStream("unicode-data.bin")) {
+            if (stream == null) {
+                throw new IllegalStateException("unicode-data.bin not found on the class path");
+            }
+            DataInputStream in = new DataInputStream(stream);
+            int formatVersion = in.readInt();
+            if (formatVersion != FORMAT_VERSION) {
+                throw new IllegalStateException("Unsupported unicode-data.bin format: " + formatVersion);
+            }
+            UNICODE_VERSION = in.readUTF();
+            BLOCK_SHIFT = in.readInt();
+            BLOCK_MASK = (1 << BLOCK_SHIFT) - 1;
+            BLOCK_INDEX = new char[in.readInt()];
+            for (int i = 0; i < BLOCK_INDEX.length; i++) {
+                BLOCK_INDEX[i] = in.readChar();
+            }
+            BLOCKS = new byte[in.readInt()];
+            in.readFully(BLOCKS);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load unicode-data.bin", e);
+        }
+    }
+
+    private UnicodeData() {}
+
+    /**
+     * The Unicode version the data was generated from, e.g. {@code "16.0.0"}.
+     */
+    static String unicodeVersion() {
+        return UNICODE_VERSION;
+    }
+
+    /**
+     * The property byte of a code point, decoded with {@link #widthOf}, {@link #breakClassOf}
+     * and {@link #isExtendedPictographic}. Code points outside the Unicode range read as a
+     * zero-width control.
+     */
+    static int properties(int codePoint) {
+        if (codePoint < 0 || codePoint > Character.MAX_CODE_POINT) {
+            return CONTROL << BREAK_CLASS_SHIFT;
+        }
+        return BLOCKS[(BLOCK_INDEX[codePoint >> BLOCK_SHIFT] << BLOCK_SHIFT) | (codePoint & BLOCK_MASK)];
+    }
+
+    /**
+     * Display width of a code point on its own: 0, 1 or 2.
+     */
+    static int widthOf(int properties) {
+        return properties & WIDTH_MASK;
+    }
+
+    static int breakClassOf(int properties) {
+        return (properties >> BREAK_CLASS_SHIFT) & BREAK_CLASS_MASK;
+    }
+
+    static boolean isExtendedPictographic(int properties) {
+        return (properties & EXTENDED_PICTOGRAPHIC) != 0;
+    }
+}
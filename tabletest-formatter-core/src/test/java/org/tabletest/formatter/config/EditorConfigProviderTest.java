@@ -1,8 +1,10 @@
 package org.tabletest.formatter.config;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.net.URISyntaxException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
@@ -74,6 +76,21 @@ class EditorConfigProviderTest {
                 .hasMessageContaining("defaults must not be null");
     }
 
+    @Test
+    void shouldFollowEditsToEditorConfigWhenRevalidating(@TempDir Path tempDir) throws Exception {
+        EditorConfigProvider revalidating = EditorConfigProvider.revalidating();
+        Path editorConfig = tempDir.resolve(".editorconfig");
+        Path testFile = tempDir.resolve("Test.java");
+        Files.writeString(editorConfig, "root = true\n[*.java]\nindent_size = 2\n");
+        Config before = revalidating.lookupConfig(testFile, Config.SPACES_4);
+
+        Files.writeString(editorConfig, "root = true\n[*.java]\nindent_style = tab\nindent_size = 1\n");
+        Config after = revalidating.lookupConfig(testFile, Config.SPACES_4);
+
+        assertThat(before).isEqualTo(new Config(IndentStyle.SPACE, 2));
+        assertThat(after).isEqualTo(new Config(IndentStyle.TAB, 1));
+    }
+
     private Path getTestResourcePath(String relativePath) throws URISyntaxException {
         return Paths.get(getClass().getClassLoader().getResource(relativePath).toURI());
     }
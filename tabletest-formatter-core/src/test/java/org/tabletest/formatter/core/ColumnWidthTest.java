@@ -44,4 +44,28 @@ class ColumnWidthTest {
                 .containsExactly(
                         columnWidths.stream().mapToInt(Integer::intValue).toArray());
     }
+
+    @DisplayName("Collection cells are as wide as their formatted text")
+    @Description("""
+            Collection values are measured as they will be printed: brackets, one space
+            after each comma and colon, and the display width of every nested element.
+            """)
+    @TableTest("""
+        Scenario            | Table lines              | Column widths?
+        List                | ["v", "[1,2,3]"]         | [9]
+        Empty list          | ["v", "[]"]              | [2]
+        Set                 | ["v", "{a,bb}"]          | [7]
+        Empty set           | ["v", "{}"]              | [2]
+        Map                 | ["v", "[a:1,b:22]"]      | [13]
+        Empty map           | ["v", "[:]"]             | [3]
+        Nested collections  | ["v", "[a:[1,2],b:{x}]"] | [19]
+        Wide nested element | ["v", "[中文,😀]"]       | [10]
+        """)
+    void measuresCollectionCellsAsFormatted(List<String> tableLines, List<Integer> columnWidths) {
+        int[] widths = formatter.calculateColumnWidths(String.join("\n", tableLines));
+
+        assertThat(widths)
+                .containsExactly(
+                        columnWidths.stream().mapToInt(Integer::intValue).toArray());
+    }
 }
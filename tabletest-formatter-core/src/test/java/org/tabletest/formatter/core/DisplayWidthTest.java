@@ -30,7 +30,7 @@ class DisplayWidthTest {
         assertThat(DisplayWidth.ofCodePoint(codePoint)).isEqualTo(width);
     }
 
-    @DisplayName("String width is the sum of its code point widths")
+    @DisplayName("String width is the sum of its grapheme cluster widths")
     @Description("""
             Emoji and CJK render two columns wide, so mixed-script strings are wider
             than their character count. A null or empty string has width zero.
@@ -69,4 +69,25 @@ class DisplayWidthTest {
     void measuresStringWidth(String text, int width) {
         assertThat(DisplayWidth.of(text)).isEqualTo(width);
     }
+
+    @DisplayName("A grapheme cluster is as wide as its widest code point")
+    @Description("""
+            Text is measured the way a terminal draws it: one user-perceived character
+            at a time. Emoji joined with zero-width joiners, emoji with a skin tone
+            modifier and pairs of regional indicators (flags) each draw as a single
+            wide character. The emoji presentation selector widens a symbol that is
+            otherwise drawn narrow.
+            """)
+    @TableTest("""
+        Scenario                              | Text | Width?
+        Family joined with zero-width joiners | 👨‍👩‍👧   | 2
+        Emoji with skin tone modifier         | 👋🏽   | 2
+        Flag from two regional indicators     | 🇳🇴   | 2
+        Symbol with emoji presentation        | ❤️   | 2
+        Symbol with default text presentation | ❤    | 1
+        Letter with combining accent          | é    | 1
+        """)
+    void measuresGraphemeClusterWidth(String text, int width) {
+        assertThat(DisplayWidth.of(text)).isEqualTo(width);
+    }
 }
@@ -4,6 +4,12 @@ import org.junit.jupiter.api.Test;
 import org.tabletest.formatter.config.Config;
 import org.tabletest.formatter.config.IndentStyle;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 /**
@@ -741,4 +747,190 @@ class SourceFileFormatterTest {
                 void test() {}
                 """);
     }
+
+    @Test
+    void shouldWriteSameContentToWriterAsFormat() throws IOException {
+        String input = """
+                public class Test {
+                    @TableTest(\"""
+                    name|age
+                    Alice|30
+                    \""")
+                    void test1() {}
+
+                    @TableTest({"city|country", "London|UK"})
+                    void test2() {}
+                }
+                """;
+        StringWriter out = new StringWriter();
+
+        formatter.formatTo(input, Config.SPACES_4, out);
+
+        assertThat(out.toString()).isEqualTo(formatter.format(input, Config.SPACES_4));
+    }
+
+    @Test
+    void shouldFormatCharBufferContent() {
+        String input = """
+                class Test {
+                    @TableTest({"name|age", "Alice|30"})
+                    void test() {}
+                }
+                """;
+        StringBuilder out = new StringBuilder();
+
+        formatter.formatTo(CharBuffer.wrap(input.toCharArray()), Config.SPACES_4, out);
+
+        assertThat(out.toString()).isEqualTo(formatter.format(input, Config.SPACES_4));
+    }
+
+    @Test
+    void shouldReturnEditsOnlyForChangedTables() {
+        String input = """
+                class Test {
+                    @TableTest(\"""
+                        a | b
+                        \""")
+                    void formatted() {}
+
+                    @TableTest(\"""
+                        a|bb
+                        \""")
+                    void unformatted() {}
+                }
+                """;
+
+        List<TextEdit> edits = formatter.formatEdits(input, Config.SPACES_4);
+
+        assertThat(edits).singleElement().satisfies(edit -> {
+            assertThat(input.substring(edit.start(), edit.end())).isEqualTo("\n        a|bb\n        ");
+            assertThat(edit.replacement()).isEqualTo("\n        a | bb\n        ");
+        });
+        assertThat(TextEdit.applyAll(input, edits)).isEqualTo(formatter.format(input, Config.SPACES_4));
+    }
+
+    @Test
+    void shouldReturnNoEditsWhenAlreadyFormatted() {
+        String input = """
+                class Test {
+                    @TableTest(\"""
+                        a | b
+                        \""")
+                    void textBlock() {}
+
+                    @TableTest({
+                        "a | b"
+                    })
+                    void stringArray() {}
+                }
+                """;
+
+        assertThat(formatter.formatEdits(input, Config.SPACES_4)).isEmpty();
+    }
+
+    @Test
+    void shouldFormatOnlyTablesTouchingChangedLines() {
+        String input = """
+                class Test {
+                    @TableTest(\"""
+                        a|b
+                        \""")
+                    void legacy() {}
+
+                    @TableTest(\"""
+                        c|d
+                        e|f
+                        \""")
+                    void edited() {}
+
+                    @TableTest({"g|h", "i|j"})
+                    void alsoLegacy() {}
+                }
+                """;
+
+        String formatted = formatter.format(input, Config.SPACES_4, List.of(new LineRange(9, 9)));
+
+        assertThat(formatted).isEqualTo(input.replace("c|d", "c | d").replace("e|f", "e | f"));
+        assertThat(TextEdit.applyAll(
+                        input, formatter.formatEdits(input, Config.SPACES_4, List.of(new LineRange(9, 9)))))
+                .isEqualTo(formatted);
+    }
+
+    @Test
+    void shouldFormatTablesOverlappingAnyOfSeveralRanges() {
+        String input = """
+                @TableTest({"a|b"})
+                void first() {}
+                @TableTest({"c|d"})
+                void second() {}
+                @TableTest({"e|f"})
+                void third() {}
+                """;
+
+        String formatted = formatter.format(input, Config.SPACES_4, List.of(new LineRange(5, 6), new LineRange(1, 1)));
+
+        assertThat(formatted).contains("@TableTest({\"c|d\"})").doesNotContain("a|b", "e|f");
+    }
+
+    @Test
+    void shouldLeaveContentUnchangedWhenNoTableTouchesChangedLines() {
+        String input = """
+                @TableTest({"a|b"})
+                void test() {}
+                """;
+
+        assertThat(formatter.format(input, Config.SPACES_4, List.of(new LineRange(2, 3))))
+                .isSameAs(input);
+        assertThat(formatter.format(input, Config.SPACES_4, List.of())).isSameAs(input);
+        assertThat(formatter.formatEdits(input, Config.SPACES_4, List.of(new LineRange(2, 2))))
+                .isEmpty();
+    }
+
+    @Test
+    void shouldTellListenerAboutEachTableFound() {
+        String input = """
+                @TableTest(\"""
+                    a|b
+                    1|2
+                    \""")
+                void first() {}
+                @TableTest({"c|d", "e|f", "g|h"})
+                void second() {}
+                @TableTest({"x|y", "not|a|row"})
+                void third() {}
+                """;
+        List<String> events = new ArrayList<>();
+        TableListener listener = new TableListener() {
+            @Override
+            public void tableStarted(int offset) {
+                events.add("started " + offset);
+            }
+
+            @Override
+            public void tableParsed(int rows, int cells) {
+                events.add("parsed " + rows + " rows, " + cells + " cells");
+            }
+
+            @Override
+            public void tableFinished() {
+                events.add("finished");
+            }
+        };
+
+        List<TableMatch> tables = formatter.findTables(input);
+        List<TextEdit> edits = formatter.formatEdits(input, tables, Config.SPACES_4, listener);
+
+        assertThat(formatter.findTables(input, List.of(new LineRange(6, 6)))).containsExactly(tables.get(1));
+        assertThat(edits).isEqualTo(formatter.formatEdits(input, Config.SPACES_4));
+        assertThat(events)
+                .containsExactly(
+                        "started " + tables.get(0).tableContentStart(),
+                        "parsed 1 rows, 2 cells",
+                        "finished",
+                        "started " + tables.get(1).tableContentStart(),
+                        "parsed 2 rows, 4 cells",
+                        "finished",
+                        "started " + tables.get(2).tableContentStart(),
+                        "finished");
+    }
 }
@@ -0,0 +1,119 @@
+package org.tabletest.formatter.core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.tabletest.formatter.config.Config;
+import org.tabletest.formatter.config.IndentStyle;
+
+import java.io.IOException;
+import java.nio.charset.MalformedInputException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StreamingTableFormatterTest {
+
+    private final StreamingTableFormatter streamingFormatter = new StreamingTableFormatter();
+    private final TableTestFormatter formatter = new TableTestFormatter();
+
+    @Test
+    void shouldWriteSameOutputAsInMemoryFormatter(@TempDir Path tempDir) throws IOException {
+        String input = """
+                name|tags|note
+                // people
+                Alice|[a,b]|'x|y'
+
+                Bob 中文|{1,2}|[k:v]
+                """;
+
+        assertStreamedMatchesInMemory(tempDir, input, Config.NO_INDENT);
+    }
+
+    @Test
+    void shouldWriteSameOutputAsInMemoryFormatterWhenIndenting(@TempDir Path tempDir) throws IOException {
+        String input = """
+
+                  name|age
+                     // comment\s\s
+
+                Alice|30
+                """;
+
+        assertStreamedMatchesInMemory(tempDir, input, new Config(IndentStyle.SPACE, 2));
+    }
+
+    @Test
+    void shouldWriteSameOutputAsInMemoryFormatterForFileLargerThanReadWindow(@TempDir Path tempDir) throws IOException {
+        StringBuilder input = new StringBuilder("name|age\n");
+        for (int i = 0; i < 20_000; i++) {
+            input.append("person ").append(i).append(" 中文|").append(i % 100).append('\n');
+        }
+
+        assertStreamedMatchesInMemory(tempDir, input.toString(), new Config(IndentStyle.SPACE, 4));
+    }
+
+    @Test
+    void shouldReportUnchangedWithoutWritingWhenAlreadyFormatted(@TempDir Path tempDir) throws IOException {
+        Path source = write(tempDir, """
+                name  | age
+                Alice | 30
+                """);
+        Path target = tempDir.resolve("out.table");
+
+        assertThat(streamingFormatter.format(source, target, Config.NO_INDENT)).isFalse();
+        assertThat(target).doesNotExist();
+    }
+
+    @Test
+    void shouldOnlyCompareWithoutTarget(@TempDir Path tempDir) throws IOException {
+        Path source = write(tempDir, """
+                name|age
+                Alice|30
+                """);
+
+        assertThat(streamingFormatter.format(source, null, Config.NO_INDENT)).isTrue();
+        try (var files = Files.list(tempDir)) {
+            assertThat(files).containsExactly(source);
+        }
+    }
+
+    @Test
+    void shouldReportUnchangedWhenRowCannotBeParsed(@TempDir Path tempDir) throws IOException {
+        Path source = write(tempDir, """
+                name|age
+                Alice|30|extra
+                """);
+
+        assertThat(streamingFormatter.format(source, tempDir.resolve("out.table"), Config.NO_INDENT))
+                .isFalse();
+    }
+
+    @Test
+    void shouldFailOnInvalidUtf8AndLeaveFileUnchanged(@TempDir Path tempDir) throws IOException {
+        byte[] input = {'n', 'a', 'm', 'e', '|', 'a', 'g', 'e', '\n', 'A', (byte) 0xC3, (byte) 0x28, '|', '3', '0', '\n'
+        };
+        Path source = Files.write(tempDir.resolve("in.table"), input);
+        Path target = tempDir.resolve("out.table");
+
+        assertThatThrownBy(() -> streamingFormatter.format(source, target, Config.NO_INDENT))
+                .isInstanceOf(MalformedInputException.class);
+        assertThat(Files.readAllBytes(source)).isEqualTo(input);
+        assertThat(target).doesNotExist();
+    }
+
+    private void assertStreamedMatchesInMemory(Path tempDir, String input, Config config) throws IOException {
+        Path source = write(tempDir, input);
+        Path target = tempDir.resolve("out.table");
+
+        boolean changed = streamingFormatter.format(source, target, config);
+
+        assertThat(changed).isTrue();
+        assertThat(target).hasContent(formatter.format(input, "", config));
+    }
+
+    private static Path write(Path tempDir, String content) throws IOException {
+        return Files.writeString(tempDir.resolve("in.table"), content);
+    }
+}
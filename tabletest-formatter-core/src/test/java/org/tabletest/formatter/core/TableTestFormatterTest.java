@@ -8,6 +8,8 @@ import org.tabletest.junit.Description;
 import org.tabletest.junit.TableTest;
 import org.tabletest.junit.TypeConverterSources;
 
+import java.io.IOException;
+import java.io.StringWriter;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -77,6 +79,41 @@ class TableTestFormatterTest {
         assertThat(formatter.format(input, "", indent).equals(input)).isEqualTo(unchanged);
     }
 
+    @Test
+    void shouldAppendFormattedTableToBuilder() {
+        StringBuilder out = new StringBuilder("before\n");
+
+        formatter.formatTo("name|age\nAlice|30\n", "", Config.NO_INDENT, out);
+
+        assertThat(out.toString()).isEqualTo("""
+            before
+            name  | age
+            Alice | 30
+            """);
+    }
+
+    @Test
+    void shouldFormatTableRegionOfLargerText() {
+        String source = "@TableTest(\"\"\"\n    name|age\n    Alice|30\n    \"\"\")";
+        int start = source.indexOf('\n');
+        int end = source.lastIndexOf('\n') + 1;
+        StringBuilder out = new StringBuilder();
+
+        formatter.formatTo(source, start, end, "", new Config(IndentStyle.SPACE, 2), out);
+
+        assertThat(out.toString()).isEqualTo("  name  | age\n  Alice | 30\n  ");
+    }
+
+    @Test
+    void shouldWriteUnparseableInputUnchangedToWriter() throws IOException {
+        String input = "name|age\nAlice|30|London\n";
+        StringWriter out = new StringWriter();
+
+        formatter.formatTo(input, "", Config.NO_INDENT, out);
+
+        assertThat(out.toString()).isEqualTo(input);
+    }
+
     // ========== Input Validation Tests ==========
 
     @Test
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2025-present Nils Christian Haugen
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tabletest.formatter.unicode;
+
+import com.ibm.icu.lang.UCharacter;
+import com.ibm.icu.lang.UCharacter.EastAsianWidth;
+import com.ibm.icu.lang.UCharacter.GraphemeClusterBreak;
+import com.ibm.icu.lang.UCharacterCategory;
+import com.ibm.icu.lang.UProperty;
+import com.ibm.icu.util.VersionInfo;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generates the Unicode property table used by the formatter core to measure display width.
+ *
+ * <p>Every code point gets one property byte: its display width in bits 0-1, its
+ * grapheme cluster break class in bits 2-5 and the Extended_Pictographic flag in bit 6.
+ * The bytes are stored as a two-stage lookup table: the first stage maps each block of
+ * {@value #BLOCK_SIZE} code points to a block in the second stage, where identical blocks
+ * are stored only once.
+ *
+ * <p>Properties are read from the Unicode Character Database as bundled with ICU4J
+ * (East_Asian_Width, General_Category, Grapheme_Cluster_Break, Extended_Pictographic),
+ * so updating the ICU4J version regenerates the table for the matching Unicode version.
+ *
+ * <p>The file layout and break class numbering must match {@code UnicodeData} in the core module.
+ */
+public final class UnicodeDataGenerator {
+
+    static final int FORMAT_VERSION = 1;
+    static final int BLOCK_SHIFT = 8;
+    static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+
+    // Grapheme cluster break classes as numbered in the table
+    static final int OTHER = 0;
+    static final int CR = 1;
+    static final int LF = 2;
+    static final int CONTROL = 3;
+    static final int EXTEND = 4;
+    static final int ZWJ = 5;
+    static final int REGIONAL_INDICATOR = 6;
+    static final int PREPEND = 7;
+    static final int SPACING_MARK = 8;
+    static final int L = 9;
+    static final int V = 10;
+    static final int T = 11;
+    static final int LV = 12;
+    static final int LVT = 13;
+
+    static final int EXTENDED_PICTOGRAPHIC = 1 << 6;
+
+    private UnicodeDataGenerator() {}
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: UnicodeDataGenerator <output file>");
+            System.exit(2);
+        }
+        Path output = Path.of(args[0]);
+        Files.createDirectories(output.toAbsolutePath().getParent());
+        try (OutputStream stream = Files.newOutputStream(output)) {
+            write(stream);
+        }
+        System.out.println("Wrote Unicode " + unicodeVersion() + " data to " + output);
+    }
+
+    static void write(OutputStream stream) throws IOException {
+        byte[] properties = new byte[UCharacter.MAX_VALUE + 1];
+        for (int codePoint = 0; codePoint <= UCharacter.MAX_VALUE; codePoint++) {
+            properties[codePoint] = properties(codePoint);
+        }
+
+        int blockCount = properties.length / BLOCK_SIZE;
+        char[] stage1 = new char[blockCount];
+        List<byte[]> stage2 = new ArrayList<>();
+        Map<String, Integer> blockIndex = new HashMap<>();
+        for (int block = 0; block < blockCount; block++) {
+            byte[] values = Arrays.copyOfRange(properties, block * BLOCK_SIZE, (block + 1) * BLOCK_SIZE);
+            String key = Arrays.toString(values);
+            Integer index = blockIndex.get(key);
+            if (index == null) {
+                index = stage2.size();
+                blockIndex.put(key, index);
+                stage2.add(values);
+            }
+            stage1[block] = (char) index.intValue();
+        }
+
+        DataOutputStream out = new DataOutputStream(stream);
+        out.writeInt(FORMAT_VERSION);
+        out.writeUTF(unicodeVersion());
+        out.writeInt(BLOCK_SHIFT);
+        out.writeInt(stage1.length);
+        for (char index : stage1) {
+            out.writeChar(index);
+        }
+        out.writeInt(stage2.size() * BLOCK_SIZE);
+        for (byte[] values : stage2) {
+            out.write(values);
+        }
+        out.flush();
+    }
+
+    static String unicodeVersion() {
+        VersionInfo version = UCharacter.getUnicodeVersion();
+        return version.getMajor() + "." + version.getMinor() + "." + version.getMilli();
+    }
+
+    static byte properties(int codePoint) {
+        int pictographic =
+                UCharacter.hasBinaryProperty(codePoint, UProperty.EXTENDED_PICTOGRAPHIC) ? EXTENDED_PICTOGRAPHIC : 0;
+        return (byte) (width(codePoint) | breakClass(codePoint) << 2 | pictographic);
+    }
+
+    /**
+     * Display width of a single code point: zero for controls, combining marks, format
+     * characters and conjoining Hangul vowels and trailing consonants; two for East Asian
+     * Wide and Fullwidth characters; one otherwise. Ambiguous-width characters count as narrow.
+     */
+    static int width(int codePoint) {
+        if (codePoint == 0x00AD) {
+            // Soft hyphen is a format character, but terminals show it
+            return 1;
+        }
+        int category = UCharacter.getType(codePoint);
+        if (category == UCharacterCategory.CONTROL
+                || category == UCharacterCategory.NON_SPACING_MARK
+                || category == UCharacterCategory.ENCLOSING_MARK
+                || category == UCharacterCategory.FORMAT) {
+            return 0;
+        }
+        int breakClass = UCharacter.getIntPropertyValue(codePoint, UProperty.GRAPHEME_CLUSTER_BREAK);
+        if (breakClass == GraphemeClusterBreak.V || breakClass == GraphemeClusterBreak.T) {
+            return 0;
+        }
+        int eastAsianWidth = UCharacter.getIntPropertyValue(codePoint, UProperty.EAST_ASIAN_WIDTH);
+        return eastAsianWidth == EastAsianWidth.WIDE || eastAsianWidth == EastAsianWidth.FULLWIDTH ? 2 : 1;
+    }
+
+    static int breakClass(int codePoint) {
+        return switch (UCharacter.getIntPropertyValue(codePoint, UProperty.GRAPHEME_CLUSTER_BREAK)) {
+            case GraphemeClusterBreak.CR -> CR;
+            case GraphemeClusterBreak.LF -> LF;
+            case GraphemeClusterBreak.CONTROL -> CONTROL;
+            case GraphemeClusterBreak.EXTEND -> EXTEND;
+            case GraphemeClusterBreak.ZWJ -> ZWJ;
+            case GraphemeClusterBreak.REGIONAL_INDICATOR -> REGIONAL_INDICATOR;
+            case GraphemeClusterBreak.PREPEND -> PREPEND;
+            case GraphemeClusterBreak.SPACING_MARK -> SPACING_MARK;
+            case GraphemeClusterBreak.L -> L;
+            case GraphemeClusterBreak.V -> V;
+            case GraphemeClusterBreak.T -> T;
+            case GraphemeClusterBreak.LV -> LV;
+            case GraphemeClusterBreak.LVT -> LVT;
+            default -> OTHER;
+        };
+    }
+}